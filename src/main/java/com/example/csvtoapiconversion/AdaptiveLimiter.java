@@ -0,0 +1,162 @@
+package com.example.csvtoapiconversion;
+
+import java.util.logging.*;
+
+/**
+ * Limits the number of requests in flight to a Qualys platform, adapting the limit to how the
+ * platform responds (additive increase, multiplicative decrease).
+ * <p>
+ * The limit starts at the lower bound. Each completed request that shows no sign of congestion
+ * adds {@code 1 / limit}, so the limit grows by about one per round of requests, but only while
+ * the current limit is actually in use. A request shows congestion when it was throttled or
+ * failed (reported as overloaded by the caller), or when its latency exceeds the baseline latency
+ * by more than the tolerance factor. Congestion multiplies the limit by the backoff factor, at
+ * most once per round: requests that were already in flight when the limit was cut cannot cut it
+ * again.
+ * <p>
+ * The baseline is the lowest latency seen, drifting slowly upwards so that it follows a lasting
+ * change in the platform's normal latency.
+ */
+public class AdaptiveLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveLimiter.class.getName());
+
+    // Latency above baseline * tolerance counts as congestion
+    private static final double DEFAULT_TOLERANCE = 2.0;
+    // Limit after congestion, relative to the limit before it
+    private static final double DEFAULT_BACKOFF = 0.7;
+    // Fraction of the gap closed per sample when a latency is above the baseline
+    private static final double BASELINE_DRIFT = 0.001;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+
+    private double limit;
+    private int inFlight;
+    private double baselineNanos;
+    private long completions;
+    private long noDecreaseBefore;
+
+    /**
+     * Creates a limiter with the default tolerance (2x the baseline latency) and backoff (0.7).
+     *
+     * @param name     Name used in log messages
+     * @param minLimit Lowest limit, and the starting limit
+     * @param maxLimit Highest limit
+     */
+    public AdaptiveLimiter(String name, int minLimit, int maxLimit) {
+        this(name, minLimit, maxLimit, DEFAULT_TOLERANCE, DEFAULT_BACKOFF);
+    }
+
+    /**
+     * @param name      Name used in log messages
+     * @param minLimit  Lowest limit, and the starting limit
+     * @param maxLimit  Highest limit
+     * @param tolerance Latency above baseline * tolerance counts as congestion
+     * @param backoff   Factor the limit is multiplied by on congestion (0..1)
+     */
+    public AdaptiveLimiter(String name, int minLimit, int maxLimit, double tolerance, double backoff) {
+        if (minLimit < 1 || maxLimit < minLimit || tolerance <= 1 || backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("Invalid adaptive concurrency settings for " + name);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.limit = minLimit;
+    }
+
+    /**
+     * Parses bounds given as "MIN-MAX".
+     *
+     * @param name   Name used in log messages
+     * @param bounds "MIN-MAX"
+     * @return the limiter
+     */
+    public static AdaptiveLimiter parse(String name, String bounds) {
+        int dash = bounds.indexOf('-');
+        if (dash < 0) {
+            throw new IllegalArgumentException("Adaptive concurrency must be given as MIN-MAX: " + bounds);
+        }
+        return new AdaptiveLimiter(name, Integer.parseInt(bounds.substring(0, dash).trim()),
+            Integer.parseInt(bounds.substring(dash + 1).trim()));
+    }
+
+    /**
+     * Waits until a request may be sent. Every call must be followed by {@link #release}.
+     */
+    public synchronized void acquire() {
+        boolean interrupted = false;
+        while (inFlight >= (int) limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        inFlight++;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reports a completed request and adapts the limit.
+     *
+     * @param latencyNanos How long the request took
+     * @param overloaded   true if the request was throttled, failed with a server error or got no response
+     */
+    public synchronized void release(long latencyNanos, boolean overloaded) {
+        boolean saturated = inFlight >= (int) limit;
+        inFlight--;
+        completions++;
+        if (!overloaded) {
+            if (baselineNanos == 0 || latencyNanos < baselineNanos) {
+                baselineNanos = latencyNanos;
+            } else {
+                baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DRIFT;
+            }
+        }
+        boolean congested = overloaded || latencyNanos > baselineNanos * tolerance;
+        if (congested) {
+            if (completions > noDecreaseBefore) {
+                double previous = limit;
+                limit = Math.max(minLimit, limit * backoff);
+                // Requests still in flight were sent under the old limit
+                noDecreaseBefore = completions + inFlight;
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(String.format("%s: %s, concurrency limit %.1f -> %.1f", name,
+                        overloaded ? "throttled or failed request" : "latency " + latencyNanos / 1_000_000 + " ms", previous, limit));
+                }
+            }
+        } else if (saturated && limit < maxLimit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return the current limit on requests in flight
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the highest limit
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * @return the current baseline latency in nanoseconds, or 0 before the first request
+     */
+    public synchronized long getBaselineNanos() {
+        return (long) baselineNanos;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+
+/**
+ * Selects IP addresses by CIDR block: an address passes if it lies in one of the included blocks
+ * (or no blocks are included) and in none of the excluded blocks. IPv4 blocks only match IPv4
+ * addresses and IPv6 blocks only IPv6 addresses.
+ */
+public class CidrFilter {
+
+    private final List<Block> included;
+    private final List<Block> excluded;
+
+    /**
+     * A network address with its prefix length, in network byte order.
+     */
+    private record Block(byte[] network, int prefixLength) {
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) return false;
+            int full = prefixLength / 8;
+            for (int i = 0; i < full; i++) {
+                if (address[i] != network[i]) return false;
+            }
+            int rest = prefixLength % 8;
+            if (rest == 0) return true;
+            int mask = (0xff << (8 - rest)) & 0xff;
+            return (address[full] & mask) == (network[full] & mask);
+        }
+    }
+
+    private CidrFilter(List<Block> included, List<Block> excluded) {
+        this.included = List.copyOf(included);
+        this.excluded = List.copyOf(excluded);
+    }
+
+    /**
+     * Parses comma-separated CIDR blocks, e.g. "10.0.0.0/8,fd00::/8". A block without a prefix
+     * length is a single address.
+     *
+     * @param include blocks to include, or null to include every address
+     * @param exclude blocks to exclude, or null to exclude none
+     * @return the filter
+     */
+    public static CidrFilter parse(String include, String exclude) {
+        return new CidrFilter(blocks(include), blocks(exclude));
+    }
+
+    private static List<Block> blocks(String list) {
+        List<Block> blocks = new ArrayList<>();
+        if (list == null) return blocks;
+        for (String cidr : list.split(",")) {
+            cidr = cidr.trim();
+            if (cidr.isEmpty()) continue;
+            int slash = cidr.indexOf('/');
+            String ip = slash < 0 ? cidr : cidr.substring(0, slash);
+            byte[] network = IpAddresses.parse(ip, 0, ip.length());
+            if (network == null) {
+                throw new IllegalArgumentException("Invalid CIDR block: " + cidr);
+            }
+            int prefixLength = network.length * 8;
+            if (slash >= 0) {
+                try {
+                    prefixLength = Integer.parseInt(cidr.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid CIDR block: " + cidr, e);
+                }
+                if (prefixLength < 0 || prefixLength > network.length * 8) {
+                    throw new IllegalArgumentException("Invalid CIDR block: " + cidr);
+                }
+            }
+            blocks.add(new Block(network, prefixLength));
+        }
+        return blocks;
+    }
+
+    /**
+     * @param address 4 or 16 bytes in network order, as returned by {@link IpAddresses#parse}
+     * @return true if the address passes the filter
+     */
+    public boolean matches(byte[] address) {
+        boolean in = included.isEmpty();
+        for (int i = 0; !in && i < included.size(); i++) {
+            in = included.get(i).contains(address);
+        }
+        if (!in) return false;
+        for (Block block : excluded) {
+            if (block.contains(address)) return false;
+        }
+        return true;
+    }
+}
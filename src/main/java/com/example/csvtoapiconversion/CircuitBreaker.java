@@ -0,0 +1,163 @@
+package com.example.csvtoapiconversion;
+
+import java.util.function.LongSupplier;
+import java.util.logging.*;
+
+/**
+ * Circuit breaker for the Qualys endpoint.
+ * <p>
+ * While CLOSED, the outcome of the most recent calls is kept in a sliding window. When at least
+ * {@code minimumCalls} outcomes are known and the failure rate reaches the threshold, the breaker
+ * OPENs: calls are rejected immediately, without opening a connection, for {@code openMillis}.
+ * After that the breaker goes HALF_OPEN and lets {@code probeCalls} probe requests through.
+ * If all probes succeed the breaker closes again; any probe failure re-opens it.
+ * <p>
+ * Callers ask {@link #tryAcquirePermission()} before each request and report the outcome with
+ * {@link #onSuccess()} or {@link #onFailure()} if permission was granted.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /** Breaker state. */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probeCalls;
+    private final LongSupplier clock;
+
+    // Sliding window of the last outcomes while CLOSED (true = failure)
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    /**
+     * Creates a breaker with the default settings: a window of 20 calls, at least 10 calls before
+     * tripping, a 50% failure-rate threshold, 30 seconds open and 3 probe calls.
+     */
+    public CircuitBreaker() {
+        this(20, 10, 0.5, 30_000, 3, System::nanoTime);
+    }
+
+    /**
+     * @param windowSize           Number of recent calls the failure rate is computed over
+     * @param minimumCalls         Minimum number of calls in the window before the breaker can trip
+     * @param failureRateThreshold Failure rate (0..1) at which the breaker trips
+     * @param openMillis           How long the breaker rejects calls before probing
+     * @param probeCalls           Number of successful probe calls needed to close again
+     * @param clock                Nanosecond clock (System::nanoTime outside of tests)
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openMillis, int probeCalls, LongSupplier clock) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || probeCalls < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+        this.probeCalls = probeCalls;
+        this.clock = clock;
+    }
+
+    /**
+     * Asks for permission to send a request.
+     *
+     * @return true if the request may be sent; the caller must then report its outcome.
+     *         false if the breaker is open and the request must fail fast.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= probeCalls) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Records a successful request.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (++probeSuccesses >= probeCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Records a failed request (I/O error, timeout or unexpected HTTP status).
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * @return the current state; an OPEN breaker whose open interval has elapsed is reported as
+     *         OPEN until the next permission request moves it to HALF_OPEN
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowPosition]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = failure;
+        if (failure) windowFailures++;
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void transitionTo(State next) {
+        if (next == State.OPEN) {
+            openedAt = clock.getAsLong();
+            if (state == State.HALF_OPEN) {
+                LOGGER.warning(String.format(
+                    "Circuit breaker re-opened after a failed probe; failing fast for %d ms", openNanos / 1_000_000L));
+            } else {
+                LOGGER.warning(String.format(
+                    "Circuit breaker opened (%d of the last %d calls failed); failing fast for %d ms",
+                    windowFailures, windowCount, openNanos / 1_000_000L));
+            }
+        } else if (next == State.HALF_OPEN) {
+            LOGGER.info("Circuit breaker half-open; sending up to " + probeCalls + " probe requests");
+        } else {
+            LOGGER.info("Circuit breaker closed; resuming traffic");
+        }
+        state = next;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        windowPosition = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
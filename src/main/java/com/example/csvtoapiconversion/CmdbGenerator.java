@@ -0,0 +1,240 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Writes synthetic CMDB exports in the CSV format the application reads, at any scale, for
+ * performance tests of ingestion and dispatch.
+ * <p>
+ * The shape of the data is tunable:
+ * <ul>
+ *   <li>{@code --owners}, {@code --contacts}: number of distinct owners and contacts.</li>
+ *   <li>{@code --owner-skew}, {@code --contact-skew}: Zipf exponent of how rows are spread over
+ *       owners and contacts (0 = uniform, 1 = a few large groups and a long tail of small ones).</li>
+ *   <li>{@code --ips-per-row=min-max}: number of IPs per row, uniformly distributed.</li>
+ *   <li>{@code --subnet-ratio}: fraction of rows whose IPs are consecutive addresses in one /24,
+ *       as for a multi-homed host; the other rows get unrelated addresses.</li>
+ *   <li>{@code --ipv6-ratio}: fraction of IPs written as IPv6 addresses.</li>
+ *   <li>{@code --deactivated}: fraction of rows with a deactivated timestamp.</li>
+ *   <li>{@code --end}, {@code --spread-days}: create timestamps are uniform over the
+ *       {@code spread-days} before {@code end}; deactivated timestamps lie between create and end.</li>
+ *   <li>{@code --header}: write a header row and one quoted IP column instead of the positional layout.</li>
+ * </ul>
+ * The output depends only on the settings and {@code --seed}: the same command writes the same file.
+ * <p>
+ * Usage: {@code CmdbGenerator <output.csv> [--rows=N] [--seed=S] [--option=value...]}
+ */
+public class CmdbGenerator {
+
+    private static final String DEFAULT_END = "05/15/2025 12:00:00 AM";
+    // Rows between progress reports
+    private static final long PROGRESS_ROWS = 10_000_000;
+
+    private final long rows;
+    private final long seed;
+    private final int owners;
+    private final int contacts;
+    private final double ownerSkew;
+    private final double contactSkew;
+    private final int minIps;
+    private final int maxIps;
+    private final double subnetRatio;
+    private final double ipv6Ratio;
+    private final double deactivatedFraction;
+    private final long endSecond;
+    private final long spreadSeconds;
+    private final boolean header;
+
+    /**
+     * @param options Settings by option name (without the leading "--"); missing options take their defaults
+     */
+    public CmdbGenerator(Map<String, String> options) {
+        this.rows = Long.parseLong(options.getOrDefault("rows", "1000000"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        this.owners = Integer.parseInt(options.getOrDefault("owners", "2000"));
+        this.contacts = Integer.parseInt(options.getOrDefault("contacts", "20000"));
+        this.ownerSkew = Double.parseDouble(options.getOrDefault("owner-skew", "1.0"));
+        this.contactSkew = Double.parseDouble(options.getOrDefault("contact-skew", "0.8"));
+        String ipsPerRow = options.getOrDefault("ips-per-row", "1-4");
+        int dash = ipsPerRow.indexOf('-');
+        this.minIps = Integer.parseInt(dash < 0 ? ipsPerRow : ipsPerRow.substring(0, dash));
+        this.maxIps = Integer.parseInt(dash < 0 ? ipsPerRow : ipsPerRow.substring(dash + 1));
+        this.subnetRatio = Double.parseDouble(options.getOrDefault("subnet-ratio", "0.5"));
+        this.ipv6Ratio = Double.parseDouble(options.getOrDefault("ipv6-ratio", "0.0"));
+        this.deactivatedFraction = Double.parseDouble(options.getOrDefault("deactivated", "0.1"));
+        this.endSecond = CsvUtils.parseDate(options.getOrDefault("end", DEFAULT_END)).toEpochSecond(ZoneOffset.UTC);
+        this.spreadSeconds = Long.parseLong(options.getOrDefault("spread-days", "365")) * 86_400L;
+        this.header = Boolean.parseBoolean(options.getOrDefault("header", "false"));
+        if (rows < 0 || owners < 1 || contacts < 1 || minIps < 1 || maxIps < minIps || maxIps > 254 || spreadSeconds < 0) {
+            throw new IllegalArgumentException("Invalid generator settings: " + options);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            System.err.println("Usage: CmdbGenerator <output.csv> [--rows=N] [--seed=S] [--owners=N] [--contacts=N]"
+                + " [--owner-skew=S] [--contact-skew=S] [--ips-per-row=MIN-MAX] [--subnet-ratio=R] [--ipv6-ratio=R]"
+                + " [--deactivated=F] [--end=\"MM/dd/yyyy hh:mm:ss a\"] [--spread-days=D] [--header]");
+            System.exit(2);
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq > 0 ? arg.substring(2, eq) : arg.substring(2), eq > 0 ? arg.substring(eq + 1) : "true");
+        }
+        CmdbGenerator generator = new CmdbGenerator(options);
+        long start = System.nanoTime();
+        generator.write(Paths.get(args[0]), written -> System.err.printf("%,d rows%n", written));
+        System.err.printf("Wrote %d rows to %s in %.1f s%n", generator.rows, args[0], (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes the CSV to a file, replacing it.
+     *
+     * @param path Output file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        write(path, written -> { });
+    }
+
+    /**
+     * Writes the CSV to a file, replacing it, and reports progress.
+     *
+     * @param path     Output file
+     * @param progress Called with the number of rows written so far, every {@value #PROGRESS_ROWS} rows
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path, LongConsumer progress) throws IOException {
+        try (Writer out = new OutputStreamWriter(new BufferedOutputStream(Files.newOutputStream(path), 1 << 20), StandardCharsets.US_ASCII)) {
+            write(out, progress);
+        }
+    }
+
+    /**
+     * Writes the CSV.
+     *
+     * @param out Receives the rows; not closed
+     * @throws IOException if writing fails
+     */
+    public void write(Writer out) throws IOException {
+        write(out, written -> { });
+    }
+
+    /**
+     * Writes the CSV and reports progress.
+     *
+     * @param out      Receives the rows; not closed
+     * @param progress Called with the number of rows written so far, every {@value #PROGRESS_ROWS} rows
+     * @throws IOException if writing fails
+     */
+    public void write(Writer out, LongConsumer progress) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] ownerCdf = zipfCdf(owners, ownerSkew);
+        double[] contactCdf = zipfCdf(contacts, contactSkew);
+        StringBuilder row = new StringBuilder(256);
+        if (header) {
+            out.write(CsvSchema.DEFAULT_ASSET_COLUMN + "," + CsvSchema.DEFAULT_CONTACT_COLUMN + "," + CsvSchema.DEFAULT_OWNER_COLUMN + ","
+                + CsvSchema.DEFAULT_IP_COLUMNS + "," + CsvSchema.DEFAULT_CREATE_COLUMN + "," + CsvSchema.DEFAULT_DEACTIVATED_COLUMN + "\n");
+        }
+        for (long r = 0; r < rows; r++) {
+            row.setLength(0);
+            row.append("HOST-").append(r + 1).append(',');
+            row.append("Contact-").append(sample(contactCdf, random) + 1).append(',');
+            row.append("Team-").append(sample(ownerCdf, random) + 1).append(',');
+            if (header) row.append('"');
+            appendIps(row, random);
+            if (header) row.append('"');
+            row.append(',');
+
+            long create = endSecond - (spreadSeconds == 0 ? 0 : random.nextLong(spreadSeconds + 1));
+            appendTimestamp(row, create);
+            row.append(',');
+            if (random.nextDouble() < deactivatedFraction) {
+                appendTimestamp(row, create + (endSecond == create ? 0 : random.nextLong(endSecond - create + 1)));
+            }
+            row.append('\n');
+            out.append(row);
+            if ((r + 1) % PROGRESS_ROWS == 0) {
+                progress.accept(r + 1);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Appends the IPs of one row, separated by commas: consecutive addresses of one /24
+     * (with probability subnetRatio), otherwise unrelated addresses.
+     */
+    private void appendIps(StringBuilder row, SplittableRandom random) {
+        int count = minIps + (maxIps == minIps ? 0 : random.nextInt(maxIps - minIps + 1));
+        boolean contiguous = count > 1 && random.nextDouble() < subnetRatio;
+        int subnet = random.nextInt(1 << 16);
+        int host = 1 + random.nextInt(255 - count);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) row.append(',');
+            if (!contiguous) {
+                subnet = random.nextInt(1 << 16);
+                host = 1 + random.nextInt(254);
+            }
+            if (random.nextDouble() < ipv6Ratio) {
+                row.append("2001:db8:").append(Integer.toHexString(subnet >>> 8)).append(':')
+                   .append(Integer.toHexString(subnet & 0xFF)).append("::").append(Integer.toHexString(host));
+            } else {
+                row.append("10.").append(subnet >>> 8).append('.').append(subnet & 0xFF).append('.').append(host);
+            }
+            if (contiguous) host++;
+        }
+    }
+
+    /**
+     * Appends a timestamp in the CSV format MM/dd/yyyy hh:mm:ss a.
+     */
+    private static void appendTimestamp(StringBuilder row, long epochSecond) {
+        LocalDateTime t = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        int hour = t.getHour() % 12 == 0 ? 12 : t.getHour() % 12;
+        appendTwoDigits(row, t.getMonthValue()).append('/');
+        appendTwoDigits(row, t.getDayOfMonth()).append('/').append(t.getYear()).append(' ');
+        appendTwoDigits(row, hour).append(':');
+        appendTwoDigits(row, t.getMinute()).append(':');
+        appendTwoDigits(row, t.getSecond()).append(t.getHour() < 12 ? " AM" : " PM");
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder row, int value) {
+        return row.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Computes the cumulative distribution of a Zipf distribution over n ranks, where rank k has
+     * weight 1 / k^skew.
+     */
+    static double[] zipfCdf(int n, double skew) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, skew);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
+    /**
+     * @return a rank drawn from the distribution, 0-based
+     */
+    static int sample(double[] cdf, SplittableRandom random) {
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(i < 0 ? -i - 1 : i, cdf.length - 1);
+    }
+}
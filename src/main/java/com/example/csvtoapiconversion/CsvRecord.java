@@ -0,0 +1,138 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+
+/**
+ * One CSV record as found by {@link CsvTokenizer}: the raw characters and the offsets of the
+ * commas that separate its fields (commas inside quoted fields are not separators).
+ * <p>
+ * Fields are decoded lazily. {@link #start(int)} and {@link #end(int)} give the bounds of a
+ * field's content in {@link #chars()} (trimmed, without the surrounding quotes of a quoted field),
+ * so callers can work on the raw characters without allocating anything. {@link #get(int)}
+ * materializes a field as a String and turns the RFC 4180 escape {@code ""} into {@code "}.
+ * <p>
+ * The tokenizer reuses one instance for all records; a record is only valid while it is being
+ * handled.
+ */
+public class CsvRecord {
+
+    private CharSequence chars;
+    private int[] commas = new int[16];
+    private int commaCount;
+    private int lineNumber;
+
+    /**
+     * @return the raw characters of the record, without the line terminator
+     */
+    public CharSequence chars() {
+        return chars;
+    }
+
+    /**
+     * @return the number of fields (the number of separating commas + 1)
+     */
+    public int size() {
+        return commaCount + 1;
+    }
+
+    /**
+     * @return the 1-based line number the record starts on
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @param i field index
+     * @return the start of the field's content in {@link #chars()}, inclusive
+     */
+    public int start(int i) {
+        return (int) (bounds(i) >>> 32);
+    }
+
+    /**
+     * @param i field index
+     * @return the end of the field's content in {@link #chars()}, exclusive
+     */
+    public int end(int i) {
+        return (int) bounds(i);
+    }
+
+    /**
+     * Computes the content bounds of a field: trimmed, and without the quotes of a quoted field.
+     *
+     * @return start in the high 32 bits, end in the low 32 bits
+     */
+    private long bounds(int i) {
+        int start = i == 0 ? 0 : commas[i - 1] + 1;
+        int end = i == commaCount ? chars.length() : commas[i];
+        while (start < end && chars.charAt(start) <= ' ') start++;
+        while (end > start && chars.charAt(end - 1) <= ' ') end--;
+        if (end - start >= 2 && chars.charAt(start) == '"' && chars.charAt(end - 1) == '"') {
+            start++;
+            end--;
+            while (start < end && chars.charAt(start) <= ' ') start++;
+            while (end > start && chars.charAt(end - 1) <= ' ') end--;
+        }
+        return ((long) start << 32) | end;
+    }
+
+    /**
+     * @param i field index
+     * @return true if the field's content contains an escaped quote and must be decoded with {@link #get(int)}
+     */
+    public boolean isEscaped(int i) {
+        long bounds = bounds(i);
+        int end = (int) bounds;
+        for (int c = (int) (bounds >>> 32); c < end; c++) {
+            if (chars.charAt(c) == '"') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Decodes a field.
+     *
+     * @param i field index
+     * @return the trimmed, unquoted and unescaped field value
+     */
+    public String get(int i) {
+        long bounds = bounds(i);
+        String value = chars.subSequence((int) (bounds >>> 32), (int) bounds).toString();
+        return value.indexOf('"') < 0 ? value : value.replace("\"\"", "\"");
+    }
+
+    /**
+     * Sets the characters and line number of the record. Called by the tokenizer.
+     */
+    void reset(CharSequence chars, int lineNumber) {
+        this.chars = chars;
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Removes all comma offsets. Called by the tokenizer before the next record.
+     */
+    void clear() {
+        commaCount = 0;
+    }
+
+    /**
+     * Adds the offset of a separating comma. Called by the tokenizer.
+     */
+    void addComma(int offset) {
+        if (commaCount == commas.length) {
+            commas = Arrays.copyOf(commas, commas.length * 2);
+        }
+        commas[commaCount++] = offset;
+    }
+
+    @Override
+    public String toString() {
+        List<String> fields = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            fields.add(get(i));
+        }
+        return lineNumber + ":" + fields;
+    }
+}
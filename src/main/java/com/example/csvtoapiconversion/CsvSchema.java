@@ -0,0 +1,208 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Where the columns the application needs are found in a CSV record.
+ * <p>
+ * Two layouts are supported:
+ * <ul>
+ *   <li>Positional (the default, for files without a header row): asset, contact and owner are
+ *       columns 0, 1 and 2, the IPs are columns 3 up to (length - 2), and the last two columns are
+ *       the create and deactivated timestamps.</li>
+ *   <li>Header-driven: the first record is a header row, and the columns are found by name
+ *       (case-insensitive). Any number of other columns may be present in any order; they are
+ *       never decoded. One or more columns may hold IPs.</li>
+ * </ul>
+ * In both layouts an IP field may hold several IPs separated by commas, semicolons or whitespace
+ * (usually a quoted field in a wider export).
+ */
+public class CsvSchema {
+
+    /** Default header names, as written by the CMDB export. */
+    public static final String DEFAULT_ASSET_COLUMN = "Asset Name";
+    public static final String DEFAULT_CONTACT_COLUMN = "Contact";
+    public static final String DEFAULT_OWNER_COLUMN = "Owner";
+    public static final String DEFAULT_IP_COLUMNS = "IP Addresses";
+    public static final String DEFAULT_CREATE_COLUMN = "Create Timestamp";
+    public static final String DEFAULT_DEACTIVATED_COLUMN = "Deactivated Timestamp";
+
+    private static final CsvSchema POSITIONAL = new CsvSchema(false, null, null, null, null, null, null);
+
+    private final boolean header;
+    // Column names, for a header-driven schema that has not seen its header yet
+    private final String assetName;
+    private final String contactName;
+    private final String ownerName;
+    private final List<String> ipNames;
+    private final String createName;
+    private final String deactivatedName;
+    // Column indexes of a resolved header-driven schema
+    private int asset = -1;
+    private int contact;
+    private int owner;
+    private int[] ips;
+    private int create;
+    private int deactivated;
+    private int minimumSize;
+
+    private CsvSchema(boolean header, String assetName, String contactName, String ownerName,
+                      List<String> ipNames, String createName, String deactivatedName) {
+        this.header = header;
+        this.assetName = assetName;
+        this.contactName = contactName;
+        this.ownerName = ownerName;
+        this.ipNames = ipNames;
+        this.createName = createName;
+        this.deactivatedName = deactivatedName;
+    }
+
+    /**
+     * @return the positional layout for files without a header row
+     */
+    public static CsvSchema positional() {
+        return POSITIONAL;
+    }
+
+    /**
+     * Creates a header-driven layout. The column indexes are resolved from the header row
+     * with {@link #resolve(CsvRecord)}.
+     *
+     * @param assetName       Header of the asset name column (optional: only used in the rejects report)
+     * @param contactName     Header of the contact column
+     * @param ownerName       Header of the owner column
+     * @param ipNames         Headers of the IP columns
+     * @param createName      Header of the create timestamp column
+     * @param deactivatedName Header of the deactivated timestamp column
+     * @return the unresolved schema
+     */
+    public static CsvSchema header(String assetName, String contactName, String ownerName,
+                                   List<String> ipNames, String createName, String deactivatedName) {
+        return new CsvSchema(true, assetName, contactName, ownerName, List.copyOf(ipNames), createName, deactivatedName);
+    }
+
+    /**
+     * @return true if the first record of the file is a header row
+     */
+    public boolean hasHeader() {
+        return header;
+    }
+
+    /**
+     * @return a key that identifies the layout, so results computed with one layout are not reused with another
+     */
+    public String key() {
+        return header
+            ? String.join("|", "header", assetName, contactName, ownerName, String.join(",", ipNames), createName, deactivatedName)
+            : "positional";
+    }
+
+    /**
+     * Resolves the column names of a header-driven schema against the header row.
+     *
+     * @param headerRow the first record of the file
+     * @return the schema with column indexes
+     * @throws IOException if a required column is missing
+     */
+    public CsvSchema resolve(CsvRecord headerRow) throws IOException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < headerRow.size(); i++) {
+            columns.putIfAbsent(headerRow.get(i).toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = new ArrayList<>();
+        CsvSchema resolved = new CsvSchema(true, assetName, contactName, ownerName, ipNames, createName, deactivatedName);
+        resolved.asset = columns.getOrDefault(assetName.toLowerCase(Locale.ROOT), -1);
+        resolved.contact = column(columns, contactName, missing);
+        resolved.owner = column(columns, ownerName, missing);
+        resolved.ips = new int[ipNames.size()];
+        for (int i = 0; i < ipNames.size(); i++) {
+            resolved.ips[i] = column(columns, ipNames.get(i), missing);
+        }
+        resolved.create = column(columns, createName, missing);
+        resolved.deactivated = column(columns, deactivatedName, missing);
+        if (!missing.isEmpty()) {
+            throw new IOException("CSV header is missing column(s) " + missing + "; header is " + headerRow);
+        }
+        int max = Math.max(Math.max(resolved.asset, resolved.contact), Math.max(resolved.owner, Math.max(resolved.create, resolved.deactivated)));
+        for (int ip : resolved.ips) {
+            max = Math.max(max, ip);
+        }
+        resolved.minimumSize = max + 1;
+        return resolved;
+    }
+
+    private static int column(Map<String, Integer> columns, String name, List<String> missing) {
+        Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            missing.add(name);
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @return true if a record of this size holds all columns; shorter records are skipped
+     */
+    public boolean accepts(int size) {
+        return header ? size >= minimumSize : size >= 6;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @return the field index of the asset name column, or -1 if there is none
+     */
+    public int asset(int size) {
+        return header ? asset : 0;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @return the field index of the contact column
+     */
+    public int contact(int size) {
+        return header ? contact : 1;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @return the field index of the owner column
+     */
+    public int owner(int size) {
+        return header ? owner : 2;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @return the field index of the create timestamp column
+     */
+    public int create(int size) {
+        return header ? create : size - 2;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @return the field index of the deactivated timestamp column
+     */
+    public int deactivated(int size) {
+        return header ? deactivated : size - 1;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @return the number of IP columns
+     */
+    public int ipCount(int size) {
+        return header ? ips.length : size - 5;
+    }
+
+    /**
+     * @param size number of fields in the record
+     * @param n    IP column number, 0 to ipCount - 1
+     * @return the field index of the n-th IP column
+     */
+    public int ip(int size, int n) {
+        return header ? ips[n] : 3 + n;
+    }
+}
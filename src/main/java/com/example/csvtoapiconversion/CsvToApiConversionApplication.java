@@ -1,10 +1,16 @@
 package com.example.csvtoapiconversion;
 
 import java.io.*;
+import java.nio.charset.*;
 import java.nio.file.*;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import java.util.logging.*;
+import java.util.regex.*;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 
 /**
  * Main application class for converting a CMDB CSV file to Qualys asset group API actions.
@@ -33,110 +39,666 @@ public class CsvToApiConversionApplication {
         }
     }
 
+    // Leading commands that select the run mode; without one, the app parses and syncs in one run
+    private static final Set<String> COMMANDS = Set.of("plan", "apply", "replay", "serve", "merge");
+    // Options that take a value and may be given as "--name value" as well as "--name=value"
+    private static final Set<String> VALUE_OPTIONS = Set.of(
+        "plan-file", "dead-letter-file", "rejects-file",
+        "circuit-failure-rate", "circuit-open-seconds",
+        "port", "workers", "shard", "shards", "flight-recording",
+        "include-owner", "exclude-owner", "include-contact", "exclude-contact", "include-cidr", "exclude-cidr",
+        "sorted-by", "prefetch-threads", "concurrency", "adaptive-concurrency", "list-page-size", "platforms",
+        "asset-column", "contact-column", "owner-column", "ip-columns", "create-column", "deactivated-column"
+    );
+    // Start timestamp of the last completed run, read as the default start timestamp of the next
+    private static final Path TIMESTAMP_FILE = Paths.get("CsvToApiConversion.txt");
+    // Flight recorder settings for the app's events, applied on top of the JDK's default settings
+    private static final String FLIGHT_RECORDER_SETTINGS = "/csv-to-api-conversion.jfc";
+
     /**
      * Entry point: parses arguments, processes CSV, manages API calls, logging, and writes completion timestamp.
-     * @param args Command-line arguments: [csvPath] [startTimestamp] [suppressApiCall]
+     * <p>
+     * An optional leading command selects the mode:
+     * <ul>
+     *   <li>{@code plan}: parse the CSV, resolve group IDs and write the operations to a plan file without editing groups.</li>
+     *   <li>{@code apply}: execute the operations of a plan file; no CSV is read.</li>
+     *   <li>{@code replay}: re-execute only the failed operations recorded in the dead-letter file.</li>
+     *   <li>{@code serve}: run as a long-lived local HTTP service that accepts sync jobs (see {@link SyncService}).</li>
+     *   <li>{@code merge}: combine the outputs of the {@code --shards=N} workers of a sharded sync (see {@link #runMerge}).</li>
+     * </ul>
+     * Operations that fail are appended to the dead-letter file.
+     * Without a command, the CSV is parsed and the groups are edited in one run.
+     *
+     * @param args Command-line arguments: [plan|apply|replay|serve|merge] [csvPath] [startTimestamp] [suppressApiCall] [--option=value...]
      * @throws Exception if an error occurs during processing
      */
     public static void main(String[] args) throws Exception {
         ArgsConfig config = parseArgs(args);
+        startFlightRecording(config);
+        QualysApi.setCircuitBreaker(createCircuitBreaker(config));
+        if (config.getPlatformsFile() != null) {
+            QualysApi.setRouter(PlatformRouter.load(config.getPlatformsFile(), () -> createCircuitBreaker(config), config.getConcurrency()));
+        }
+        if (config.getAdaptiveConcurrency() != null) {
+            for (QualysPlatform platform : QualysApi.getRouter().getPlatforms()) {
+                if (platform.getAdaptiveLimiter() == null) {
+                    platform.setAdaptiveLimiter(AdaptiveLimiter.parse(platform.getName(), config.getAdaptiveConcurrency()));
+                }
+            }
+        }
+        try {
+            switch (config.getCommand()) {
+                case "plan" -> runPlan(config);
+                case "apply" -> runApply(config);
+                case "replay" -> runReplay(config);
+                case "serve" -> SyncService.serve(config);
+                case "merge" -> {
+                    if (!runMerge(config)) System.exit(1);
+                }
+                default -> runSync(config, System.out::println);
+            }
+        } catch (QualysFatalErrorException e) {
+            String msg = e.getMessage() + " Exiting application.";
+            LOGGER.severe(msg);
+            System.err.println(msg);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * With --flight-recording=FILE, starts a flight recording with the JDK's default settings and the
+     * bundled csv-to-api-conversion.jfc (parse batches, Qualys group lookups and edits, lower socket
+     * and lock thresholds). The recording is written to FILE when the JVM exits.
+     */
+    private static void startFlightRecording(ArgsConfig config) throws IOException, java.text.ParseException {
+        String file = config.getOption("flight-recording", null);
+        if (file == null) return;
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (Reader in = new InputStreamReader(
+                CsvToApiConversionApplication.class.getResourceAsStream(FLIGHT_RECORDER_SETTINGS), StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(in).getSettings());
+        }
+        Recording recording = new Recording(settings);
+        recording.setName("csv-to-api-conversion");
+        recording.setToDisk(true);
+        recording.setDestination(Paths.get(file));
+        recording.setDumpOnExit(true);
+        recording.start();
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Flight recording to " + file);
+        }
+    }
+
+    /**
+     * Creates the circuit breaker for this run from the --circuit-failure-rate and
+     * --circuit-open-seconds options, falling back to the defaults.
+     */
+    private static CircuitBreaker createCircuitBreaker(ArgsConfig config) {
+        double failureRate = Double.parseDouble(config.getOption("circuit-failure-rate", "0.5"));
+        long openSeconds = Long.parseLong(config.getOption("circuit-open-seconds", "30"));
+        return new CircuitBreaker(20, 10, failureRate, openSeconds * 1000, 3, System::nanoTime);
+    }
 
+    /**
+     * Parses the CSV and edits the Qualys groups in the same run.
+     * Used by the command line and by each job of the service mode.
+     *
+     * @param config Parsed arguments for the run
+     * @param progress Receives one line per dispatched operation and a final summary line
+     * @throws IOException if the CSV cannot be read
+     */
+    static void runSync(ArgsConfig config, Consumer<String> progress) throws IOException {
         // Capture the application start timestamp
         LocalDateTime appStartTimestamp = LocalDateTime.now();
 
         List<String> errorRecords = new ArrayList<>();
-        Map<String, Set<String>> ownerToActiveIps = new HashMap<>();
-        Map<String, Set<String>> contactToActiveIps = new HashMap<>();
-        Map<String, Set<String>> ownerToDeactivatedIps = new HashMap<>();
-        Map<String, Set<String>> contactToDeactivatedIps = new HashMap<>();
-
-        // Parse CSV and build maps for owner/contact to active/deactivated IPs
-        CsvUtils.processCsv(
-            config.getCsvPath(), config.getStartTimestamp(),
-            ownerToActiveIps, contactToActiveIps,
-            ownerToDeactivatedIps, contactToDeactivatedIps
-        );
+        GroupIndex owners = newGroupIndex("owner", config);
+        GroupIndex contacts = newGroupIndex("contact", config);
+
+        if (config.isPipelined() && config.isReconcile()) {
+            LOGGER.warning("--reconcile needs the complete plan before dispatch; running without pipelining");
+        } else if (config.isPipelined()) {
+            runPipelinedSync(config, appStartTimestamp, owners, contacts, errorRecords, progress);
+            return;
+        }
+
+        // Parse CSV and aggregate active/deactivated IPs per owner and contact
+        List<String> rejects = new ArrayList<>();
+        CsvUtils.processCsv(config.getCsvPath(), config.getStartTimestamp(), config.getCsvSchema(), owners, contacts, rejects, config.isSnapshot(), config.getIpFilter());
+        writeRejects(config.getRejectsFile(), rejects);
 
         // Process removals (deactivated IPs) before additions (active IPs)
-        processRemovals(ownerToDeactivatedIps, "owner", config.isSuppressApiCall(), errorRecords);
-        processRemovals(contactToDeactivatedIps, "contact", config.isSuppressApiCall(), errorRecords);
-        processAdditions(ownerToActiveIps, "owner", config.isSuppressApiCall(), errorRecords);
-        processAdditions(contactToActiveIps, "contact", config.isSuppressApiCall(), errorRecords);
+        SyncPlan plan = SyncPlan.build(owners, contacts, appStartTimestamp);
+        progress.accept(String.format("Parsed %s: %d owners, %d contacts, %d rejected IPs, %d operations",
+            config.getCsvPath(), owners.size(), contacts.size(), rejects.size(), plan.getOperations().size()));
+        if (config.isReconcile()) {
+            if (!config.isSuppressApiCall()) {
+                plan = plan.resolveGroupIds(errorRecords, LOGGER);
+            }
+            plan = reconcile(plan, config);
+        }
+        int failed = dispatch(plan.getOperations(), config, errorRecords, progress);
+
+        logSummary(owners, contacts, errorRecords);
+        writeStartTimestamp(config.getTimestampFile(), appStartTimestamp);
+        progress.accept(String.format("Completed: %d operations, %d failed", plan.getOperations().size(), failed));
+    }
+
+    /**
+     * Creates an owner or contact index that only aggregates the groups selected by the
+     * --include-/--exclude- options and, with --shard, the groups of this shard.
+     */
+    private static GroupIndex newGroupIndex(String groupType, ArgsConfig config) {
+        GroupIndex index = new GroupIndex(groupType);
+        Predicate<String> filter = config.getGroupFilter(groupType);
+        Shard shard = config.getShard();
+        if (shard != null) {
+            filter = filter == null ? shard::owns : filter.and(shard::owns);
+        }
+        if (filter != null) {
+            index.setFilter(filter);
+        }
+        return index;
+    }
+
+    /**
+     * Pipelined variant of {@link #runSync}: group-ID lookups start while the CSV is still being
+     * parsed and, for input sorted by owner or contact, each group is dispatched as soon as its last
+     * row has passed (see {@link PipelinedDispatcher}).
+     */
+    private static void runPipelinedSync(ArgsConfig config, LocalDateTime appStartTimestamp, GroupIndex owners, GroupIndex contacts,
+                                         List<String> errorRecords, Consumer<String> progress) throws IOException {
+        int prefetchThreads = config.isSuppressApiCall() ? 0 : Integer.parseInt(config.getOption("prefetch-threads", "4"));
+        PipelinedDispatcher dispatcher = new PipelinedDispatcher(config.getOption("sorted-by", null), prefetchThreads,
+            op -> execute(op, config.isSuppressApiCall(), errorRecords, progress), LOGGER);
+        owners.setListener(dispatcher);
+        contacts.setListener(dispatcher);
+        try {
+            List<String> rejects = new ArrayList<>();
+            CsvUtils.processCsv(config.getCsvPath(), config.getStartTimestamp(), config.getCsvSchema(), owners, contacts, rejects, config.isSnapshot(), config.getIpFilter());
+            writeRejects(config.getRejectsFile(), rejects);
+            progress.accept(String.format("Parsed %s: %d owners, %d contacts, %d rejected IPs, %d operations dispatched while parsing",
+                config.getCsvPath(), owners.size(), contacts.size(), rejects.size(), dispatcher.getSubmitted()));
+            dispatcher.complete(owners, contacts);
+        } finally {
+            dispatcher.close();
+            recordFailures(config.getDeadLetterFile(), dispatcher.getFailures());
+        }
+
+        logSummary(owners, contacts, errorRecords);
+        writeStartTimestamp(config.getTimestampFile(), appStartTimestamp);
+        progress.accept(String.format("Completed: %d operations, %d failed", dispatcher.getSubmitted(), dispatcher.getFailures().size()));
+    }
+
+    /**
+     * Parses the CSV, resolves the Qualys group IDs and writes the resulting operations to the plan file.
+     * No group is edited. If suppressApiCall is true, group IDs are left unresolved.
+     */
+    private static void runPlan(ArgsConfig config) throws IOException {
+        LocalDateTime appStartTimestamp = LocalDateTime.now();
+
+        List<String> errorRecords = new ArrayList<>();
+        GroupIndex owners = newGroupIndex("owner", config);
+        GroupIndex contacts = newGroupIndex("contact", config);
+        List<String> rejects = new ArrayList<>();
+        CsvUtils.processCsv(config.getCsvPath(), config.getStartTimestamp(), config.getCsvSchema(), owners, contacts, rejects, config.isSnapshot(), config.getIpFilter());
+        writeRejects(config.getRejectsFile(), rejects);
+
+        SyncPlan plan = SyncPlan.build(owners, contacts, appStartTimestamp);
+        if (!config.isSuppressApiCall()) {
+            plan = plan.resolveGroupIds(errorRecords, LOGGER);
+        }
+        if (config.isReconcile()) {
+            plan = reconcile(plan, config);
+        }
+        for (GroupOperation op : plan.getOperations()) {
+            System.out.println("[PLAN] " + op);
+        }
+        plan.write(config.getPlanFile());
+
+        logSummary(owners, contacts, errorRecords);
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Wrote %d operations to plan file %s", plan.getOperations().size(), config.getPlanFile()));
+        }
+    }
+
+    /**
+     * Lists the current membership of the plan's Qualys groups and drops the edits that would not
+     * change it (see {@link SyncPlan#reconcile}). Operations must already carry their group IDs;
+     * groups whose membership cannot be listed keep all their edits. Each platform is listed and
+     * reconciled separately, since group IDs are only unique within a platform.
+     * Skipped in a dry run, since listing needs the Qualys API.
+     *
+     * @return the reconciled plan, or the given plan in a dry run
+     */
+    private static SyncPlan reconcile(SyncPlan plan, ArgsConfig config) {
+        if (config.isSuppressApiCall()) {
+            LOGGER.warning("--reconcile needs the Qualys API; skipped because API calls are suppressed");
+            return plan;
+        }
+        List<GroupOperation> reconciled = new ArrayList<>();
+        for (Map.Entry<QualysPlatform, List<GroupOperation>> platform : byPlatform(plan.getOperations()).entrySet()) {
+            Set<String> groupIds = new LinkedHashSet<>();
+            for (GroupOperation op : platform.getValue()) {
+                if (op.getGroupId() != null) groupIds.add(op.getGroupId());
+            }
+            Map<String, GroupMembership> memberships =
+                QualysApi.listGroupMembership(platform.getKey(), groupIds, config.getListPageSize(), LOGGER);
+            reconciled.addAll(new SyncPlan(plan.getAppStartTimestamp(), platform.getValue()).reconcile(memberships, LOGGER).getOperations());
+        }
+        return new SyncPlan(plan.getAppStartTimestamp(), reconciled);
+    }
+
+    /**
+     * Splits operations by the Qualys platform their group is routed to, keeping their order.
+     */
+    private static Map<QualysPlatform, List<GroupOperation>> byPlatform(List<GroupOperation> operations) {
+        PlatformRouter router = QualysApi.getRouter();
+        Map<QualysPlatform, List<GroupOperation>> byPlatform = new LinkedHashMap<>();
+        for (GroupOperation op : operations) {
+            byPlatform.computeIfAbsent(router.route(op.getGroupType(), op.getGroupName()), p -> new ArrayList<>()).add(op);
+        }
+        return byPlatform;
+    }
+
+    /**
+     * Executes the operations of a plan file. On completion, writes the start timestamp of the
+     * run that computed the plan, since that is the point in time the plan reflects.
+     */
+    private static void runApply(ArgsConfig config) throws IOException {
+        SyncPlan plan = SyncPlan.read(config.getPlanFile());
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Applying %d operations from plan file %s (planned at %s)",
+                plan.getOperations().size(), config.getPlanFile(), plan.getAppStartTimestamp()));
+        }
+
+        List<String> errorRecords = new ArrayList<>();
+        dispatch(plan.getOperations(), config, errorRecords, System.out::println);
 
-        LOGGER.info("Owner to Active IPs:");
-        ownerToActiveIps.forEach((k, v) -> LOGGER.info("Owner: " + k + " -> IPs: " + v));
-        LOGGER.info("Contact to Active IPs:");
-        contactToActiveIps.forEach((k, v) -> LOGGER.info("Contact: " + k + " -> IPs: " + v));
-        LOGGER.info("Owner to Deactivated IPs:");
-        ownerToDeactivatedIps.forEach((k, v) -> LOGGER.info("Owner: " + k + " -> Deactivated IPs: " + v));
-        LOGGER.info("Contact to Deactivated IPs:");
-        contactToDeactivatedIps.forEach((k, v) -> LOGGER.info("Contact: " + k + " -> Deactivated IPs: " + v));
         if (LOGGER.isLoggable(Level.INFO)) {
             LOGGER.info(String.format("Error Records: %s", errorRecords));
         }
+        writeStartTimestamp(config.getTimestampFile(), plan.getAppStartTimestamp());
+    }
+
+    /**
+     * Re-executes the operations recorded in the dead-letter file, in the order they failed.
+     * Operations that fail again are kept in the file with their attempt count incremented;
+     * the file is removed once every operation has succeeded.
+     */
+    private static void runReplay(ArgsConfig config) throws IOException {
+        Path deadLetterFile = config.getDeadLetterFile();
+        List<DeadLetter> letters = DeadLetter.read(deadLetterFile);
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Replaying %d failed operations from %s", letters.size(), deadLetterFile));
+        }
 
-        // Write the application start timestamp to CsvToApiConversion.txt in the project root
+        List<String> errorRecords = new ArrayList<>();
+        List<DeadLetter> remaining = new ArrayList<>();
+        int i = 0;
         try {
-            String timestamp = appStartTimestamp.toString();
-            Path outputPath = Paths.get("CsvToApiConversion.txt");
-            Files.writeString(outputPath, timestamp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            if (LOGGER.isLoggable(Level.INFO)) {
-                LOGGER.info(String.format("Wrote application start timestamp to CsvToApiConversion.txt: %s", timestamp));
+            for (; i < letters.size(); i++) {
+                DeadLetter letter = letters.get(i);
+                String errorCode = execute(letter.getOperation(), config.isSuppressApiCall(), errorRecords, System.out::println);
+                if (config.isSuppressApiCall()) {
+                    remaining.add(letter);
+                } else if (errorCode != null) {
+                    remaining.add(new DeadLetter(letter.getOperation(), errorCode, letter.getAttempts() + 1));
+                }
             }
-        } catch (IOException e) {
-            LOGGER.warning("Failed to write application start timestamp: " + e.getMessage());
+        } finally {
+            // Keep whatever was not replayed, e.g. after a fatal Qualys error
+            remaining.addAll(letters.subList(i, letters.size()));
+            if (!config.isSuppressApiCall()) {
+                DeadLetter.write(deadLetterFile, remaining);
+            }
+        }
+
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Replayed %d operations, %d still failing", letters.size(), remaining.size()));
+            LOGGER.info(String.format("Error Records: %s", errorRecords));
         }
     }
 
     /**
-     * For each group (owner/contact), remove IPs that are deactivated.
-     * If suppressApiCall is true, only print what would be done.
+     * Executes the operations in order and appends the failed ones to the dead-letter file.
+     * If a fatal Qualys error stops the run, the operation that hit it and all operations not yet
+     * sent are parked in the dead-letter file too (with an attempt count of 0 for the unsent ones).
+     * With --concurrency greater than 1, independent groups are edited in parallel instead
+     * (see {@link GroupScheduler}). When the groups are routed to several Qualys platforms, the
+     * platforms are dispatched in parallel, each with its own concurrency.
      *
-     * @param groupToIps Map of group name to set of IPs to remove
-     * @param groupType  "owner" or "contact"
-     * @param suppressApiCall If true, do not make API calls (dry run)
+     * @param operations Operations in dispatch order
+     * @param config Parsed arguments (suppressApiCall flag, concurrency and dead-letter file)
      * @param errorRecords List to collect error records
+     * @param progress Receives one line per operation
+     * @return the number of failed operations
+     */
+    private static int dispatch(List<GroupOperation> operations, ArgsConfig config, List<String> errorRecords, Consumer<String> progress) {
+        Map<QualysPlatform, List<GroupOperation>> byPlatform = byPlatform(operations);
+        if (byPlatform.size() > 1) {
+            return dispatchPlatforms(byPlatform, config, errorRecords, progress);
+        }
+        int concurrency = byPlatform.isEmpty() ? 1 : concurrency(byPlatform.keySet().iterator().next(), config);
+        if (concurrency > 1) {
+            List<String> sharedErrorRecords = Collections.synchronizedList(errorRecords);
+            GroupScheduler scheduler = new GroupScheduler(concurrency,
+                op -> execute(op, config.isSuppressApiCall(), sharedErrorRecords, progress), LOGGER);
+            try {
+                scheduler.run(operations);
+            } finally {
+                recordFailures(config.getDeadLetterFile(), scheduler.getFailures());
+            }
+            return scheduler.getFailures().size();
+        }
+
+        List<DeadLetter> failures = new ArrayList<>();
+        int i = 0;
+        try {
+            for (; i < operations.size(); i++) {
+                GroupOperation op = operations.get(i);
+                String errorCode = execute(op, config.isSuppressApiCall(), errorRecords, progress);
+                if (errorCode != null) {
+                    failures.add(new DeadLetter(op, errorCode, 1));
+                }
+            }
+        } catch (QualysFatalErrorException e) {
+            for (int j = i; j < operations.size(); j++) {
+                failures.add(new DeadLetter(operations.get(j), e.getErrorCode(), j == i ? 1 : 0));
+            }
+            throw e;
+        } finally {
+            recordFailures(config.getDeadLetterFile(), failures);
+        }
+        return failures.size();
+    }
+
+    /**
+     * Dispatches the operations of each platform on its own thread, with a {@link GroupScheduler}
+     * per platform. A fatal error only stops the platform it came from; it is rethrown once all
+     * platforms have finished.
+     *
+     * @return the number of failed operations
+     */
+    private static int dispatchPlatforms(Map<QualysPlatform, List<GroupOperation>> byPlatform, ArgsConfig config,
+                                         List<String> errorRecords, Consumer<String> progress) {
+        List<String> sharedErrorRecords = Collections.synchronizedList(errorRecords);
+        Map<QualysPlatform, GroupScheduler> schedulers = new LinkedHashMap<>();
+        List<Future<?>> runs = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(byPlatform.size());
+        try {
+            for (Map.Entry<QualysPlatform, List<GroupOperation>> platform : byPlatform.entrySet()) {
+                GroupScheduler scheduler = new GroupScheduler(concurrency(platform.getKey(), config),
+                    op -> execute(op, config.isSuppressApiCall(), sharedErrorRecords, progress), LOGGER);
+                schedulers.put(platform.getKey(), scheduler);
+                if (LOGGER.isLoggable(Level.INFO)) {
+                    LOGGER.info(String.format("Dispatching %d operations to Qualys platform %s", platform.getValue().size(), platform.getKey()));
+                }
+                runs.add(pool.submit(() -> scheduler.run(platform.getValue())));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        RuntimeException error = null;
+        List<DeadLetter> failures = new ArrayList<>();
+        try {
+            for (Future<?> run : runs) {
+                try {
+                    run.get();
+                } catch (ExecutionException e) {
+                    RuntimeException cause = e.getCause() instanceof RuntimeException r ? r : new RuntimeException(e.getCause());
+                    if (error == null) error = cause;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (error == null) error = new IllegalStateException("Interrupted while waiting for platform dispatch", e);
+                }
+            }
+        } finally {
+            schedulers.values().forEach(scheduler -> failures.addAll(scheduler.getFailures()));
+            recordFailures(config.getDeadLetterFile(), failures);
+        }
+        if (error != null) {
+            throw error;
+        }
+        return failures.size();
+    }
+
+    /**
+     * @return the number of groups edited at the same time on a platform: its own limit, or --concurrency
+     */
+    private static int concurrency(QualysPlatform platform, ArgsConfig config) {
+        return platform.getConcurrency() > 0 ? platform.getConcurrency() : config.getConcurrency();
+    }
+
+    /**
+     * Merges the outputs of the shard workers of a sharded sync (--shards=N) into the unsharded files:
+     * <ul>
+     *   <li>the dead letters of all shards are appended to the dead-letter file;</li>
+     *   <li>the rejects reports are combined, in line order and without the duplicates of rows whose
+     *   owner and contact are in different shards;</li>
+     *   <li>if every shard has completed, the earliest shard start timestamp becomes the start
+     *   timestamp of the next run.</li>
+     * </ul>
+     * Shard files are removed once merged. The timestamps of completed shards are kept until all
+     * shards have completed, so that the merge can be repeated after rerunning the failed shards.
+     *
+     * @return true if every shard had completed
+     * @throws IOException if a shard file cannot be read or the merged files cannot be written
      */
-    private static void processRemovals(Map<String, Set<String>> groupToIps, String groupType, boolean suppressApiCall, List<String> errorRecords) {
-        for (Map.Entry<String, Set<String>> entry : groupToIps.entrySet()) {
-            String group = entry.getKey();
-            Set<String> ips = entry.getValue();
-            if (!suppressApiCall) {
-                QualysApi.makeApiCall("remove", group, ips.toArray(new String[0]), errorRecords, LOGGER);
+    static boolean runMerge(ArgsConfig config) throws IOException {
+        if (config.getShard() != null) {
+            throw new IllegalArgumentException("merge combines all shards; use --shards=N instead of --shard");
+        }
+        int count = config.getShardCount();
+        List<DeadLetter> failures = new ArrayList<>();
+        List<String> rejects = new ArrayList<>();
+        Set<String> seenRejects = new HashSet<>();
+        List<Path> merged = new ArrayList<>();
+        List<Path> timestamps = new ArrayList<>();
+        LocalDateTime earliest = null;
+        List<Shard> incomplete = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Shard shard = new Shard(i, count);
+            Path deadLetterFile = shard.file(config.getDeadLetterFile());
+            if (Files.exists(deadLetterFile)) {
+                failures.addAll(DeadLetter.read(deadLetterFile));
+                merged.add(deadLetterFile);
+            }
+            Path rejectsFile = shard.file(config.getRejectsFile());
+            if (Files.exists(rejectsFile)) {
+                for (String line : Files.readAllLines(rejectsFile)) {
+                    if (!line.startsWith("#") && seenRejects.add(line)) rejects.add(line);
+                }
+                merged.add(rejectsFile);
+            }
+            Path timestampFile = shard.file(TIMESTAMP_FILE);
+            if (Files.exists(timestampFile)) {
+                LocalDateTime timestamp = LocalDateTime.parse(Files.readString(timestampFile).trim());
+                earliest = earliest == null || timestamp.isBefore(earliest) ? timestamp : earliest;
+                timestamps.add(timestampFile);
             } else {
-                System.out.println("[DRY RUN] Would remove IPs " + ips + " from " + groupType + " group: " + group);
+                incomplete.add(shard);
             }
         }
+
+        if (!failures.isEmpty()) {
+            DeadLetter.append(config.getDeadLetterFile(), failures);
+        }
+        rejects.sort(Comparator.comparingLong(line -> Long.parseLong(line.substring(0, line.indexOf('\t')))));
+        writeRejects(config.getRejectsFile(), rejects);
+        for (Path file : merged) {
+            Files.delete(file);
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Merged %d shards: %d failed operations, %d rejected IP fields",
+                count, failures.size(), rejects.size()));
+        }
+
+        if (!incomplete.isEmpty()) {
+            LOGGER.severe(String.format("Shards %s have not completed; start timestamp not updated", incomplete));
+            return false;
+        }
+        writeStartTimestamp(TIMESTAMP_FILE, earliest);
+        for (Path file : timestamps) {
+            Files.delete(file);
+        }
+        return true;
     }
 
     /**
-     * For each group (owner/contact), add IPs that are active.
+     * Executes a single operation and reports it to the progress consumer.
      * If suppressApiCall is true, only print what would be done.
      *
-     * @param groupToIps Map of group name to set of IPs to add
-     * @param groupType  "owner" or "contact"
-     * @param suppressApiCall If true, do not make API calls (dry run)
-     * @param errorRecords List to collect error records
+     * @return null on success (or dry run), otherwise the failure code
      */
-    private static void processAdditions(Map<String, Set<String>> groupToIps, String groupType, boolean suppressApiCall, List<String> errorRecords) {
-        for (Map.Entry<String, Set<String>> entry : groupToIps.entrySet()) {
-            String group = entry.getKey();
-            Set<String> ips = entry.getValue();
-            if (!suppressApiCall) {
-                QualysApi.makeApiCall("add", group, ips.toArray(new String[0]), errorRecords, LOGGER);
+    private static String execute(GroupOperation op, boolean suppressApiCall, List<String> errorRecords, Consumer<String> progress) {
+        if (suppressApiCall) {
+            if ("remove".equals(op.getAction())) {
+                progress.accept("[DRY RUN] Would remove IPs " + Arrays.toString(op.getIps()) + " from " + op.getGroupType() + " group: " + op.getGroupName());
             } else {
-                System.out.println("[DRY RUN] Would add IPs " + ips + " to " + groupType + " group: " + group);
+                progress.accept("[DRY RUN] Would add IPs " + Arrays.toString(op.getIps()) + " to " + op.getGroupType() + " group: " + op.getGroupName());
+            }
+            return null;
+        }
+        String errorCode = QualysApi.makeApiCall(op, errorRecords, LOGGER);
+        if (errorCode == null) {
+            progress.accept("[OK] " + op.getAction() + " " + op.getIps().length + " IPs " + op.getGroupType() + " group: " + op.getGroupName());
+        } else {
+            progress.accept("[FAILED " + errorCode + "] " + op.getAction() + " " + op.getIps().length + " IPs " + op.getGroupType() + " group: " + op.getGroupName());
+        }
+        return errorCode;
+    }
+
+    /**
+     * Writes the rejected IP fields of this run to the rejects report, replacing the previous report.
+     * The report is removed when nothing was rejected.
+     */
+    private static void writeRejects(Path rejectsFile, List<String> rejects) {
+        try {
+            if (rejects.isEmpty()) {
+                Files.deleteIfExists(rejectsFile);
+                return;
             }
+            List<String> lines = new ArrayList<>(rejects.size() + 1);
+            lines.add("# line\tasset\tvalue\treason");
+            lines.addAll(rejects);
+            Files.write(rejectsFile, lines);
+            LOGGER.warning(String.format("Rejected %d invalid IP fields; see %s", rejects.size(), rejectsFile));
+        } catch (IOException e) {
+            LOGGER.severe("Failed to write rejects report " + rejectsFile + ": " + e.getMessage());
+            rejects.forEach(r -> LOGGER.severe("Rejected IP field: " + r));
+        }
+    }
+
+    /**
+     * Appends failed operations to the dead-letter file so they can be replayed.
+     */
+    private static void recordFailures(Path deadLetterFile, List<DeadLetter> failures) {
+        if (failures.isEmpty()) return;
+        try {
+            DeadLetter.append(deadLetterFile, failures);
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info(String.format("Recorded %d failed operations in %s", failures.size(), deadLetterFile));
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Failed to write dead-letter file " + deadLetterFile + ": " + e.getMessage());
+            failures.forEach(f -> LOGGER.severe("Unrecorded failed operation: " + f));
+        }
+    }
+
+    /**
+     * Logs the aggregated maps and the error records.
+     */
+    private static void logSummary(GroupIndex owners, GroupIndex contacts, List<String> errorRecords) {
+        LOGGER.info("Owner to Active IPs:");
+        owners.toActiveMap().forEach((k, v) -> LOGGER.info("Owner: " + k + " -> IPs: " + v));
+        LOGGER.info("Contact to Active IPs:");
+        contacts.toActiveMap().forEach((k, v) -> LOGGER.info("Contact: " + k + " -> IPs: " + v));
+        LOGGER.info("Owner to Deactivated IPs:");
+        owners.toDeactivatedMap().forEach((k, v) -> LOGGER.info("Owner: " + k + " -> Deactivated IPs: " + v));
+        LOGGER.info("Contact to Deactivated IPs:");
+        contacts.toDeactivatedMap().forEach((k, v) -> LOGGER.info("Contact: " + k + " -> Deactivated IPs: " + v));
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Error Records: %s", errorRecords));
         }
     }
 
     /**
-     * Parse command-line arguments for CSV path, start timestamp, and suppressApiCall flag.
+     * Writes the application start timestamp to CsvToApiConversion.txt in the project root,
+     * or to the shard's copy of it.
+     * <p>
+     * The timestamp only moves forward. Concurrent jobs of the service finish in any order, and a
+     * job that started earlier and finishes last would otherwise set it back, which only makes the
+     * next run re-process rows. The rule trades that for the opposite risk: once a later job has
+     * written its start, the next run skips rows older than it, including rows of an earlier job
+     * that is still running; those are only synced if that job succeeds.
+     * <p>
+     * The rule applies to every caller: {@code apply} of a plan that started before the current
+     * timestamp, and {@code merge} of shards whose earliest start is before it, leave it unchanged.
+     */
+    static synchronized void writeStartTimestamp(Path outputPath, LocalDateTime appStartTimestamp) {
+        if (outputPath == null) {
+            LOGGER.info("Targeted sync: start timestamp not updated");
+            return;
+        }
+        try {
+            if (Files.exists(outputPath)) {
+                try {
+                    LocalDateTime current = LocalDateTime.parse(Files.readString(outputPath).trim());
+                    if (current.isAfter(appStartTimestamp)) {
+                        if (LOGGER.isLoggable(Level.INFO)) {
+                            LOGGER.info(String.format("Kept later start timestamp in %s: %s", outputPath, current));
+                        }
+                        return;
+                    }
+                } catch (DateTimeException e) {
+                    // Not written by this app; overwrite it
+                }
+            }
+            String timestamp = appStartTimestamp.toString();
+            Files.writeString(outputPath, timestamp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info(String.format("Wrote application start timestamp to %s: %s", outputPath, timestamp));
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Failed to write application start timestamp: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse command-line arguments for command, CSV path, start timestamp, suppressApiCall flag and options.
      * If start timestamp is not provided as an argument, attempts to read it from CsvToApiConversion.txt.
+     * <p>
+     * Options are given as {@code --name=value} (or {@code --name value} for options that take a value)
+     * and may appear anywhere; a bare {@code --name} is a boolean flag.
      * @param args Command-line arguments
      * @return ArgsConfig object with parsed values
      */
-    private static ArgsConfig parseArgs(String[] args) {
+    static ArgsConfig parseArgs(String[] args) {
+        String command = "sync";
+        Map<String, String> options = new HashMap<>();
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg != null && arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                String name = eq > 0 ? arg.substring(2, eq) : arg.substring(2);
+                if (eq > 0) {
+                    options.put(name, arg.substring(eq + 1));
+                } else if (VALUE_OPTIONS.contains(name) && i + 1 < args.length) {
+                    options.put(name, args[++i]);
+                } else {
+                    options.put(name, "true");
+                }
+            } else if (i == 0 && COMMANDS.contains(arg)) {
+                command = arg;
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
+
         Path csvPath;
         LocalDateTime startTimestamp = null;
         boolean suppressApiCall = false;
@@ -157,7 +719,7 @@ public class CsvToApiConversionApplication {
             }
         } else {
             // Try to read from CsvToApiConversion.txt if present
-            Path tsFile = Paths.get("CsvToApiConversion.txt");
+            Path tsFile = TIMESTAMP_FILE;
             if (Files.exists(tsFile)) {
                 try {
                     String tsString = Files.readString(tsFile).trim();
@@ -183,23 +745,38 @@ public class CsvToApiConversionApplication {
         if (args.length >= 3 && args[2] != null && !args[2].isBlank()) {
             suppressApiCall = Boolean.parseBoolean(args[2]);
         }
+        if (options.containsKey("suppress-api-call")) {
+            suppressApiCall = Boolean.parseBoolean(options.get("suppress-api-call"));
+        }
 
-        return new ArgsConfig(csvPath, startTimestamp, suppressApiCall);
+        return new ArgsConfig(command, csvPath, startTimestamp, suppressApiCall, options);
     }
 
     /**
      * Simple config holder for parsed arguments.
-     * Provides getters for csvPath, startTimestamp, and suppressApiCall.
+     * Provides getters for command, csvPath, startTimestamp, suppressApiCall and named options.
      */
     public static class ArgsConfig {
+        private final String command;
         private final Path csvPath;
         private final LocalDateTime startTimestamp;
         private final boolean suppressApiCall;
+        private final Map<String, String> options;
 
         ArgsConfig(Path csvPath, LocalDateTime startTimestamp, boolean suppressApiCall) {
+            this("sync", csvPath, startTimestamp, suppressApiCall, Map.of());
+        }
+
+        ArgsConfig(String command, Path csvPath, LocalDateTime startTimestamp, boolean suppressApiCall, Map<String, String> options) {
+            this.command = command;
             this.csvPath = csvPath;
             this.startTimestamp = startTimestamp;
             this.suppressApiCall = suppressApiCall;
+            this.options = options;
+        }
+
+        public String getCommand() {
+            return command;
         }
 
         public Path getCsvPath() {
@@ -213,5 +790,199 @@ public class CsvToApiConversionApplication {
         public boolean isSuppressApiCall() {
             return suppressApiCall;
         }
+
+        /**
+         * @param name Option name without the leading dashes
+         * @param defaultValue Value to return if the option was not given
+         * @return the option value, or defaultValue
+         */
+        public String getOption(String name, String defaultValue) {
+            return options.getOrDefault(name, defaultValue);
+        }
+
+        /**
+         * @return all named options, without the leading dashes
+         */
+        public Map<String, String> getOptions() {
+            return Collections.unmodifiableMap(options);
+        }
+
+        /**
+         * Returns the CSV column layout: positional by default, or header-driven with --header.
+         * Header names default to the CMDB export's and can be changed with --asset-column,
+         * --contact-column, --owner-column, --ip-columns (comma-separated), --create-column and
+         * --deactivated-column.
+         *
+         * @return the CSV column layout
+         */
+        public CsvSchema getCsvSchema() {
+            if (!Boolean.parseBoolean(getOption("header", "false"))) {
+                return CsvSchema.positional();
+            }
+            List<String> ipColumns = new ArrayList<>();
+            for (String name : getOption("ip-columns", CsvSchema.DEFAULT_IP_COLUMNS).split(",")) {
+                if (!name.isBlank()) ipColumns.add(name.trim());
+            }
+            return CsvSchema.header(
+                getOption("asset-column", CsvSchema.DEFAULT_ASSET_COLUMN),
+                getOption("contact-column", CsvSchema.DEFAULT_CONTACT_COLUMN),
+                getOption("owner-column", CsvSchema.DEFAULT_OWNER_COLUMN),
+                ipColumns,
+                getOption("create-column", CsvSchema.DEFAULT_CREATE_COLUMN),
+                getOption("deactivated-column", CsvSchema.DEFAULT_DEACTIVATED_COLUMN));
+        }
+
+        /**
+         * @return the number of Qualys groups edited at the same time (--concurrency, default 1)
+         */
+        public int getConcurrency() {
+            return Integer.parseInt(getOption("concurrency", "1"));
+        }
+
+        /**
+         * @return the bounds "MIN-MAX" of the adaptive cap on requests in flight per platform
+         * (--adaptive-concurrency), or null for a fixed cap
+         */
+        public String getAdaptiveConcurrency() {
+            return getOption("adaptive-concurrency", null);
+        }
+
+        /**
+         * @return the routing of groups to Qualys platforms (--platforms), or null for the default platform only
+         */
+        public Path getPlatformsFile() {
+            String platforms = getOption("platforms", null);
+            return platforms == null ? null : Paths.get(platforms);
+        }
+
+        /**
+         * @return true if parsed rows are cached in, and reused from, a snapshot next to the CSV (--snapshot)
+         */
+        public boolean isSnapshot() {
+            return Boolean.parseBoolean(getOption("snapshot", "false"));
+        }
+
+        /**
+         * @return true if the plan is reduced to the edits that change current group membership (--reconcile)
+         */
+        public boolean isReconcile() {
+            return Boolean.parseBoolean(getOption("reconcile", "false"));
+        }
+
+        /**
+         * @return the number of groups per page when listing group membership (--list-page-size, default 1000)
+         */
+        public int getListPageSize() {
+            return Integer.parseInt(getOption("list-page-size", "1000"));
+        }
+
+        /**
+         * @return true if parsing and dispatch overlap (--pipeline, or --sorted-by for streaming dispatch)
+         */
+        public boolean isPipelined() {
+            return options.containsKey("sorted-by") || Boolean.parseBoolean(getOption("pipeline", "false"));
+        }
+
+        /**
+         * @return the shard of this worker (--shard=i/n), or null if the run is not sharded
+         */
+        public Shard getShard() {
+            String shard = getOption("shard", null);
+            return shard == null ? null : Shard.parse(shard);
+        }
+
+        /**
+         * @return the number of shards merged by the merge command (--shards)
+         */
+        public int getShardCount() {
+            String shards = getOption("shards", null);
+            if (shards == null) {
+                throw new IllegalArgumentException("merge needs the number of shards: --shards=N");
+            }
+            return Integer.parseInt(shards);
+        }
+
+        /**
+         * @return the file the start timestamp of a completed run is written to, or null for a
+         * targeted sync, which leaves the rows of the other groups and IPs for the next run
+         */
+        public Path getTimestampFile() {
+            return isTargeted() ? null : sharded(TIMESTAMP_FILE);
+        }
+
+        /**
+         * Returns the filter for the owner or contact groups of a targeted sync. The options take
+         * regular expressions that must match the whole group name (lists are written as
+         * alternations, e.g. {@code --include-owner='Alice|Bob'}). Once any --include- option is given,
+         * only included groups are synced, so a group type without one syncs nothing; the
+         * --exclude- options then remove groups.
+         *
+         * @param groupType "owner" or "contact"
+         * @return the filter, or null if every group of the type is selected
+         */
+        public Predicate<String> getGroupFilter(String groupType) {
+            boolean includes = options.containsKey("include-owner") || options.containsKey("include-contact");
+            Pattern include = pattern("include-" + groupType);
+            Pattern exclude = pattern("exclude-" + groupType);
+            if (!includes && exclude == null) {
+                return null;
+            }
+            return name -> (include == null ? !includes : include.matcher(name).matches())
+                && (exclude == null || !exclude.matcher(name).matches());
+        }
+
+        private Pattern pattern(String option) {
+            String regex = getOption(option, null);
+            return regex == null ? null : Pattern.compile(regex);
+        }
+
+        /**
+         * @return the filter for the IPs of a targeted sync (--include-cidr, --exclude-cidr, each a
+         * comma-separated list of CIDR blocks), or null to keep every IP
+         */
+        public CidrFilter getIpFilter() {
+            String include = getOption("include-cidr", null);
+            String exclude = getOption("exclude-cidr", null);
+            return include == null && exclude == null ? null : CidrFilter.parse(include, exclude);
+        }
+
+        /**
+         * @return true if only selected groups or IPs are synced (any --include- or --exclude- option)
+         */
+        public boolean isTargeted() {
+            return getGroupFilter("owner") != null || getGroupFilter("contact") != null || getIpFilter() != null;
+        }
+
+        /**
+         * @return the plan file used by the plan and apply commands
+         */
+        public Path getPlanFile() {
+            return sharded(Paths.get(getOption("plan-file", "CsvToApiConversion.plan")));
+        }
+
+        /**
+         * @return the report that invalid IP fields are written to instead of being sent to Qualys;
+         * jobs of the service (--job, set by {@link SyncService}) each write their own report
+         */
+        public Path getRejectsFile() {
+            Path rejects = sharded(Paths.get(getOption("rejects-file", "CsvToApiConversion.rejects")));
+            String job = getOption("job", null);
+            return job == null ? rejects : SyncService.jobFile(rejects, job);
+        }
+
+        /**
+         * @return the dead-letter file that failed operations are appended to and replayed from
+         */
+        public Path getDeadLetterFile() {
+            return sharded(Paths.get(getOption("dead-letter-file", "CsvToApiConversion.deadletter")));
+        }
+
+        /**
+         * @return the shard's copy of an output file with --shard, otherwise the file itself
+         */
+        private Path sharded(Path path) {
+            Shard shard = getShard();
+            return shard == null ? path : shard.file(path);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Splits a CSV byte stream into records and field boundaries, following RFC 4180.
+ * <p>
+ * The input is read in large chunks, and a {@link DelimiterScanner} finds every ',', '\n' and '"'
+ * of a chunk in one pass. Each record is passed to the {@link RecordHandler} as a {@link CsvRecord}
+ * holding the offsets of its separating commas, so record processing can go straight to the
+ * fields it needs without splitting the line or decoding the other fields.
+ * <p>
+ * Fields may be quoted; commas and line breaks inside a quoted field belong to the field, and a
+ * quote inside a quoted field is written as {@code ""}. Records of an all-ASCII chunk are passed
+ * as a view over the read buffer and are not decoded at all. Other chunks are decoded as UTF-8
+ * record by record. Records end at "\n" or "\r\n" outside quotes; a last record without a line
+ * terminator is still passed on. A record longer than the buffer grows the buffer.
+ */
+public class CsvTokenizer {
+
+    /**
+     * Receives the records of the input, in order.
+     */
+    public interface RecordHandler {
+
+        /**
+         * @param record the record; reused for the next record, so only valid during the call
+         */
+        void record(CsvRecord record);
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final DelimiterScanner scanner;
+    private byte[] buf;
+    private int[] positions;
+    private int lineNumber;
+
+    /**
+     * Creates a tokenizer with the fastest scanner available in this JVM.
+     */
+    public CsvTokenizer() {
+        this(DelimiterScanner.create(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param scanner    Delimiter scanner to use
+     * @param bufferSize Initial read buffer size in bytes
+     */
+    CsvTokenizer(DelimiterScanner scanner, int bufferSize) {
+        this.scanner = scanner;
+        this.buf = new byte[bufferSize];
+        this.positions = new int[bufferSize];
+    }
+
+    /**
+     * @return the delimiter scanner in use
+     */
+    public DelimiterScanner getScanner() {
+        return scanner;
+    }
+
+    /**
+     * Reads the stream to the end and passes every record to the handler.
+     *
+     * @param in      the CSV bytes (UTF-8)
+     * @param handler receives each record
+     * @throws IOException if the stream cannot be read
+     */
+    public void tokenize(InputStream in, RecordHandler handler) throws IOException {
+        CsvRecord record = new CsvRecord();
+        AsciiChars asciiChars = new AsciiChars();
+        int length = 0;
+        lineNumber = 0;
+        while (true) {
+            int requested = buf.length - length;
+            int read = in.readNBytes(buf, length, requested);
+            length += read;
+            boolean eof = read < requested;
+
+            int count = scanner.scan(buf, 0, length, positions);
+            boolean ascii = scanner.wasAscii();
+            int recordStart = 0;
+            int lines = 1;
+            boolean inQuotes = false;
+            record.clear();
+            for (int p = 0; p < count; p++) {
+                int pos = positions[p];
+                byte b = buf[pos];
+                if (b == '"') {
+                    // An escaped quote ("") toggles twice and leaves the state unchanged
+                    inQuotes = !inQuotes;
+                } else if (inQuotes) {
+                    if (b == '\n') lines++;
+                } else if (b == ',') {
+                    record.addComma(pos - recordStart);
+                } else {
+                    emit(record, recordStart, pos, lines, ascii, asciiChars, handler);
+                    recordStart = pos + 1;
+                    lines = 1;
+                    record.clear();
+                }
+            }
+
+            if (eof) {
+                if (recordStart < length) {
+                    emit(record, recordStart, length, lines, ascii, asciiChars, handler);
+                }
+                return;
+            }
+            // Keep the partial last record for the next chunk; it is scanned again with the new bytes
+            int remaining = length - recordStart;
+            if (remaining == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+                positions = new int[buf.length];
+            } else {
+                System.arraycopy(buf, recordStart, buf, 0, remaining);
+            }
+            length = remaining;
+        }
+    }
+
+    /**
+     * Passes the record {@code buf[start, end)} to the handler; the record already holds its comma offsets.
+     */
+    private void emit(CsvRecord record, int start, int end, int lines, boolean ascii, AsciiChars asciiChars, RecordHandler handler) {
+        if (end > start && buf[end - 1] == '\r') end--;
+        int firstLine = lineNumber + 1;
+        lineNumber += lines;
+        if (ascii) {
+            asciiChars.reset(buf, start, end - start);
+            record.reset(asciiChars, firstLine);
+            handler.record(record);
+            return;
+        }
+        // Byte offsets differ from char offsets once multi-byte characters appear
+        String chars = new String(buf, start, end - start, StandardCharsets.UTF_8);
+        record.reset(chars, firstLine);
+        record.clear();
+        boolean inQuotes = false;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == ',' && !inQuotes) {
+                record.addComma(i);
+            }
+        }
+        handler.record(record);
+    }
+
+    /**
+     * A CharSequence view over ASCII bytes of the read buffer.
+     */
+    private static final class AsciiChars implements CharSequence {
+        private byte[] bytes;
+        private int offset;
+        private int length;
+
+        void reset(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) bytes[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            }
+            return new String(bytes, offset + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -5,12 +5,24 @@ import java.nio.file.*;
 import java.time.*;
 import java.time.format.*;
 import java.util.*;
+import java.util.function.*;
+import java.util.logging.*;
+import java.util.zip.*;
 
 /**
  * Utility class for processing the CSV file and building maps of owners/contacts to active and deactivated IPs.
  */
 public class CsvUtils {
 
+    private static final Logger LOGGER = Logger.getLogger(CsvUtils.class.getName());
+
+    /**
+     * System property that makes {@link #processCsv} print {@link #STARTUP_MARKER} to stdout once the
+     * first row has been processed; used by {@link StartupBenchmark} to measure time-to-first-row.
+     */
+    public static final String STARTUP_MARKER_PROPERTY = "csvtoapi.startupMarker";
+    public static final String STARTUP_MARKER = "[STARTUP] first row processed";
+
     /**
      * Reads the CSV file and populates the provided maps with active and deactivated IPs
      * for each owner and contact, based on the create and deactivated timestamps.
@@ -39,53 +51,276 @@ public class CsvUtils {
             Map<String, Set<String>> ownerToDeactivatedIps,
             Map<String, Set<String>> contactToDeactivatedIps
     ) throws IOException {
-        try (BufferedReader reader = Files.newBufferedReader(csvPath)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                processCsvRow(
-                    line,
-                    startTimestamp,
-                    ownerToActiveIps,
-                    contactToActiveIps,
-                    ownerToDeactivatedIps,
-                    contactToDeactivatedIps
-                );
-            }
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        processCsv(csvPath, startTimestamp, owners, contacts);
+
+        mergeInto(ownerToActiveIps, owners.toActiveMap());
+        mergeInto(contactToActiveIps, contacts.toActiveMap());
+        mergeInto(ownerToDeactivatedIps, owners.toDeactivatedMap());
+        mergeInto(contactToDeactivatedIps, contacts.toDeactivatedMap());
+    }
+
+    /**
+     * Reads the CSV file and aggregates active and deactivated IPs per owner and contact,
+     * using the same business logic as {@link #processCsv(Path, LocalDateTime, Map, Map, Map, Map)}.
+     * <p>
+     * Owner and contact names are dictionary-encoded into the given indexes straight from the
+     * raw line, so repeated names do not allocate a String per row.
+     *
+     * @param csvPath Path to the CSV file
+     * @param startTimestamp Optional filter for create/deactivated timestamps
+     * @param owners Output: owner index (active and deactivated IPs per owner)
+     * @param contacts Output: contact index (active and deactivated IPs per contact)
+     * @throws IOException if the file cannot be read
+     */
+    public static void processCsv(
+            Path csvPath,
+            LocalDateTime startTimestamp,
+            GroupIndex owners,
+            GroupIndex contacts
+    ) throws IOException {
+        processCsv(csvPath, startTimestamp, owners, contacts, new ArrayList<>());
+    }
+
+    /**
+     * Reads the CSV file and aggregates active and deactivated IPs per owner and contact,
+     * collecting every IP field that is not a valid IPv4 or IPv6 address in a rejects report.
+     * The file has no header row and uses the positional column layout.
+     *
+     * @param csvPath Path to the CSV file
+     * @param startTimestamp Optional filter for create/deactivated timestamps
+     * @param owners Output: owner index (active and deactivated IPs per owner)
+     * @param contacts Output: contact index (active and deactivated IPs per contact)
+     * @param rejects Output: one tab-separated entry per rejected IP field (line, asset, value, reason)
+     * @throws IOException if the file cannot be read
+     */
+    public static void processCsv(
+            Path csvPath,
+            LocalDateTime startTimestamp,
+            GroupIndex owners,
+            GroupIndex contacts,
+            List<String> rejects
+    ) throws IOException {
+        processCsv(csvPath, startTimestamp, CsvSchema.positional(), owners, contacts, rejects);
+    }
+
+    /**
+     * Reads the CSV file with the given column layout and aggregates active and deactivated IPs
+     * per owner and contact, collecting every IP that is not a valid IPv4 or IPv6 address in a
+     * rejects report.
+     * <p>
+     * Valid IPs are canonicalized (see {@link IpAddresses}) so that different spellings of the
+     * same address are only sent once. Invalid or empty IP fields are left out of the row;
+     * the row's valid IPs are still used. Quoted fields are handled per RFC 4180, and only the
+     * columns the schema projects are decoded.
+     *
+     * @param csvPath Path to the CSV file
+     * @param startTimestamp Optional filter for create/deactivated timestamps
+     * @param schema Column layout; a header-driven schema is resolved against the first row
+     * @param owners Output: owner index (active and deactivated IPs per owner)
+     * @param contacts Output: contact index (active and deactivated IPs per contact)
+     * @param rejects Output: one tab-separated entry per rejected IP field (line, asset, value, reason)
+     * @throws IOException if the file cannot be read, or a header row lacks a required column
+     */
+    public static void processCsv(
+            Path csvPath,
+            LocalDateTime startTimestamp,
+            CsvSchema schema,
+            GroupIndex owners,
+            GroupIndex contacts,
+            List<String> rejects
+    ) throws IOException {
+        parseCsv(csvPath, startTimestamp, schema, owners, contacts, rejects, null);
+    }
+
+    /**
+     * Parses the CSV text row by row, without a snapshot.
+     */
+    private static void parseCsv(Path csvPath, LocalDateTime startTimestamp, CsvSchema schema, GroupIndex owners,
+                                 GroupIndex contacts, List<String> rejects, CidrFilter ipFilter) throws IOException {
+        Runnable firstRow = firstRowCallback();
+        boolean[] first = {true};
+        try (InputStream in = Files.newInputStream(csvPath)) {
+            tokenize(in, schema, (record, resolved) -> {
+                processCsvRow(record, resolved, startTimestamp, owners, contacts, rejects, ipFilter);
+                if (first[0]) {
+                    first[0] = false;
+                    firstRow.run();
+                }
+            });
         }
     }
 
     /**
-     * Processes a single row from the CSV file and updates the appropriate maps.
-     * Skips invalid rows and applies the startTimestamp filter if provided.
+     * Like {@link #processCsv(Path, LocalDateTime, CsvSchema, GroupIndex, GroupIndex, List)}, but
+     * optionally through the parsed snapshot of the file (see {@link ParsedSnapshot}): if a valid
+     * snapshot exists, its rows are replayed without reading the CSV text; otherwise the CSV is
+     * parsed once in full (before the start-timestamp filter), the snapshot is written, and the rows
+     * are replayed from it. The result is the same as parsing the CSV.
      *
-     * @param line The CSV row as a string
+     * @param csvPath Path to the CSV file
      * @param startTimestamp Optional filter for create/deactivated timestamps
-     * @param ownerToActiveIps Output: owner → set of active IPs
-     * @param contactToActiveIps Output: contact → set of active IPs
-     * @param ownerToDeactivatedIps Output: owner → set of deactivated IPs
-     * @param contactToDeactivatedIps Output: contact → set of deactivated IPs
+     * @param schema Column layout; a header-driven schema is resolved against the first row
+     * @param owners Output: owner index (active and deactivated IPs per owner)
+     * @param contacts Output: contact index (active and deactivated IPs per contact)
+     * @param rejects Output: one tab-separated entry per rejected IP field (line, asset, value, reason)
+     * @param useSnapshot true to read and write the snapshot next to the CSV
+     * @throws IOException if the file cannot be read, or a header row lacks a required column
      */
-    private static void processCsvRow(
-            String line,
+    public static void processCsv(
+            Path csvPath,
             LocalDateTime startTimestamp,
-            Map<String, Set<String>> ownerToActiveIps,
-            Map<String, Set<String>> contactToActiveIps,
-            Map<String, Set<String>> ownerToDeactivatedIps,
-            Map<String, Set<String>> contactToDeactivatedIps
-    ) {
-        String[] cols = line.split(",", -1);
-        if (cols.length < 6) return; // Skip invalid rows
+            CsvSchema schema,
+            GroupIndex owners,
+            GroupIndex contacts,
+            List<String> rejects,
+            boolean useSnapshot
+    ) throws IOException {
+        processCsv(csvPath, startTimestamp, schema, owners, contacts, rejects, useSnapshot, null);
+    }
+
+    /**
+     * Like {@link #processCsv(Path, LocalDateTime, CsvSchema, GroupIndex, GroupIndex, List, boolean)},
+     * keeping only the IPs that pass the given filter. IPs outside the filter are dropped without a
+     * reject entry; invalid IPs are still rejected.
+     * <p>
+     * The group filters of the indexes (see {@link GroupIndex#setFilter}) are checked before
+     * anything else of a row: a row whose owner and contact are both filtered out is dropped after
+     * reading just those two fields, without parsing its timestamps or IPs.
+     *
+     * @param csvPath Path to the CSV file
+     * @param startTimestamp Optional filter for create/deactivated timestamps
+     * @param schema Column layout; a header-driven schema is resolved against the first row
+     * @param owners Output: owner index (active and deactivated IPs per owner)
+     * @param contacts Output: contact index (active and deactivated IPs per contact)
+     * @param rejects Output: one tab-separated entry per rejected IP field (line, asset, value, reason)
+     * @param useSnapshot true to read and write the snapshot next to the CSV
+     * @param ipFilter Optional filter for IPs
+     * @throws IOException if the file cannot be read, or a header row lacks a required column
+     */
+    public static void processCsv(
+            Path csvPath,
+            LocalDateTime startTimestamp,
+            CsvSchema schema,
+            GroupIndex owners,
+            GroupIndex contacts,
+            List<String> rejects,
+            boolean useSnapshot,
+            CidrFilter ipFilter
+    ) throws IOException {
+        if (!useSnapshot) {
+            parseCsv(csvPath, startTimestamp, schema, owners, contacts, rejects, ipFilter);
+            return;
+        }
+        ParsedSnapshot snapshot = ParsedSnapshot.open(csvPath, schema.key());
+        if (snapshot == null) {
+            snapshot = writeSnapshot(csvPath, schema);
+        } else if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Reusing snapshot %s (%d rows)", ParsedSnapshot.pathFor(csvPath), snapshot.getRows()));
+        }
+        snapshot.replay(startTimestamp, owners, contacts, rejects, ipFilter, firstRowCallback());
+    }
+
+    /**
+     * Parses every row of the CSV into a new snapshot. The CRC32C of the file is computed from the
+     * bytes as they are parsed.
+     */
+    private static ParsedSnapshot writeSnapshot(Path csvPath, CsvSchema schema) throws IOException {
+        long size = Files.size(csvPath);
+        long modified = Files.getLastModifiedTime(csvPath).toMillis();
+        CRC32C crc = new CRC32C();
+        try (ParsedSnapshot.Writer writer = new ParsedSnapshot.Writer(csvPath);
+             InputStream in = new CheckedInputStream(Files.newInputStream(csvPath), crc)) {
+            tokenize(in, schema, (record, resolved) -> snapshotRow(record, resolved, writer));
+            return writer.commit(size, modified, crc.getValue(), schema.key());
+        }
+    }
+
+    /**
+     * @return prints {@link #STARTUP_MARKER} if {@link #STARTUP_MARKER_PROPERTY} is set
+     */
+    private static Runnable firstRowCallback() {
+        boolean startupMarker = Boolean.getBoolean(STARTUP_MARKER_PROPERTY);
+        return () -> {
+            if (startupMarker) System.out.println(STARTUP_MARKER);
+        };
+    }
 
-        String assetName = cols[0].trim();
-        String contact = cols[1].trim();
-        String owner = cols[2].trim();
+    /**
+     * Receives the data records of a CSV file together with the resolved column layout.
+     */
+    private interface RowHandler {
+        void row(CsvRecord record, CsvSchema schema) throws IOException;
+    }
 
-        // IPs are from index 3 up to (length - 2)
-        String[] ips = Arrays.copyOfRange(cols, 3, cols.length - 2);
-        for (int i = 0; i < ips.length; i++) ips[i] = ips[i].trim();
+    /**
+     * Tokenizes the CSV and passes every data record to the handler, resolving a header-driven
+     * schema against the first record. Each batch of rows is reported as a {@link ParseBatchEvent}.
+     */
+    private static void tokenize(InputStream in, CsvSchema schema, RowHandler handler) throws IOException {
+        CsvSchema[] resolved = {schema.hasHeader() ? null : schema};
+        ParseBatchEvent[] batch = {ParseBatchEvent.start("csv", 0)};
+        try {
+            new CsvTokenizer().tokenize(in, record -> {
+                try {
+                    if (resolved[0] == null) {
+                        resolved[0] = schema.resolve(record);
+                    } else {
+                        handler.row(record, resolved[0]);
+                        if (++batch[0].rows == ParseBatchEvent.BATCH_ROWS) {
+                            batch[0].commit();
+                            batch[0] = ParseBatchEvent.start("csv", batch[0].firstRow + ParseBatchEvent.BATCH_ROWS);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (batch[0].rows > 0) {
+            batch[0].commit();
+        }
+    }
+
+    /**
+     * Processes a single record from the CSV file and updates the owner and contact indexes.
+     * Skips invalid rows and applies the startTimestamp filter if provided.
+     * <p>
+     * Only the columns the schema points at are decoded: owner and contact first (for the group
+     * filters), then the timestamps, then (for rows that pass the filter) the IPs, straight from the
+     * raw characters of the record.
+     *
+     * @param record The CSV record
+     * @param schema Column layout
+     * @param startTimestamp Optional filter for create/deactivated timestamps
+     * @param owners Output: owner index
+     * @param contacts Output: contact index
+     * @param rejects Output: rejected IP fields
+     * @param ipFilter Optional filter for IPs
+     * @throws IOException declared by the IP field walk shared with {@link #snapshotRow}; not thrown here
+     */
+    private static void processCsvRow(
+            CsvRecord record,
+            CsvSchema schema,
+            LocalDateTime startTimestamp,
+            GroupIndex owners,
+            GroupIndex contacts,
+            List<String> rejects,
+            CidrFilter ipFilter
+    ) throws IOException {
+        int size = record.size();
+        // Skip invalid rows (fewer columns than the layout needs)
+        if (!schema.accepts(size)) return;
+        // Neither group belongs to this run (another shard, or not selected)
+        boolean ownerSelected = accepts(owners, record, schema.owner(size));
+        boolean contactSelected = accepts(contacts, record, schema.contact(size));
+        if (!ownerSelected && !contactSelected) return;
 
-        String createTimestampStr = cols[cols.length - 2].trim();
-        String deactivatedTimestampStr = cols[cols.length - 1].trim();
+        String createTimestampStr = record.get(schema.create(size));
+        String deactivatedTimestampStr = record.get(schema.deactivated(size));
 
         LocalDateTime createTimestamp = createTimestampStr.isEmpty() ? null : parseDate(createTimestampStr);
         LocalDateTime deactivatedTimestamp = deactivatedTimestampStr.isEmpty() ? null : parseDate(deactivatedTimestampStr);
@@ -94,15 +329,157 @@ public class CsvUtils {
             return;
         }
 
+        // The group the filter rejected is not interned; its IPs are dropped
+        int contactId = contactSelected ? intern(contacts, record, schema.contact(size)) : -1;
+        int ownerId = ownerSelected ? intern(owners, record, schema.owner(size)) : -1;
+
+        RowIps ips = new RowIps(Math.max(schema.ipCount(size), 4), ipFilter);
+        parseIps(record, schema, size, ips, rejects::add);
+        int valid = ips.size;
+        if (valid == 0) return;
+
         if (deactivatedTimestamp == null) {
             // No deactivated timestamp: treat as active
-            ownerToActiveIps.computeIfAbsent(owner, k -> new HashSet<>()).addAll(Arrays.asList(ips));
-            contactToActiveIps.computeIfAbsent(contact, k -> new HashSet<>()).addAll(Arrays.asList(ips));
+            owners.addActive(ownerId, ips.ips, valid);
+            contacts.addActive(contactId, ips.ips, valid);
         } else {
             // Has deactivated timestamp: treat as deactivated
-            ownerToDeactivatedIps.computeIfAbsent(owner, k -> new HashSet<>()).addAll(Arrays.asList(ips));
-            contactToDeactivatedIps.computeIfAbsent(contact, k -> new HashSet<>()).addAll(Arrays.asList(ips));
+            owners.addDeactivated(ownerId, ips.ips, valid);
+            contacts.addDeactivated(contactId, ips.ips, valid);
+        }
+    }
+
+    /**
+     * Adds a CSV record to a snapshot: everything {@link #processCsvRow} would use, parsed, but
+     * without applying the start-timestamp filter.
+     */
+    private static void snapshotRow(CsvRecord record, CsvSchema schema, ParsedSnapshot.Writer writer) throws IOException {
+        int size = record.size();
+        if (!schema.accepts(size)) return;
+
+        String createTimestampStr = record.get(schema.create(size));
+        String deactivatedTimestampStr = record.get(schema.deactivated(size));
+        long createTimestamp = snapshotDate(createTimestampStr);
+        long deactivatedTimestamp = snapshotDate(deactivatedTimestampStr);
+        writer.row(record, schema.contact(size), schema.owner(size), createTimestamp, deactivatedTimestamp);
+        parseIps(record, schema, size, writer::ip, writer::reject);
+    }
+
+    /**
+     * A timestamp field as stored in a snapshot. A malformed date is stored as
+     * {@link ParsedSnapshot#INVALID} rather than failing the build, since the row may belong to
+     * a group this run filters out; replaying a row that passes the filters then fails instead.
+     */
+    private static long snapshotDate(String s) {
+        if (s.isEmpty()) return ParsedSnapshot.NONE;
+        try {
+            return parseDate(s).toEpochSecond(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            return ParsedSnapshot.INVALID;
+        }
+    }
+
+    /**
+     * Receives the valid IPs of a record, as returned by {@link IpAddresses#parse}.
+     */
+    private interface IpSink {
+        void ip(byte[] address) throws IOException;
+    }
+
+    /**
+     * The canonical IPs of one row that pass the IP filter.
+     */
+    private static final class RowIps implements IpSink {
+        private final CidrFilter filter;
+        private String[] ips;
+        private int size;
+
+        RowIps(int capacity, CidrFilter filter) {
+            this.ips = new String[capacity];
+            this.filter = filter;
+        }
+
+        @Override
+        public void ip(byte[] address) {
+            if (filter != null && !filter.matches(address)) return;
+            if (size == ips.length) {
+                ips = Arrays.copyOf(ips, ips.length * 2);
+            }
+            ips[size++] = IpAddresses.format(address);
+        }
+    }
+
+    /**
+     * Walks the IP fields of a record, for both parsing and snapshot writing: every valid IP goes to
+     * the IP sink, and every empty field or invalid IP to the reject sink as a rejects report entry.
+     */
+    private static void parseIps(CsvRecord record, CsvSchema schema, int size, IpSink ips, Consumer<String> rejects) throws IOException {
+        CharSequence chars = record.chars();
+        for (int n = 0; n < schema.ipCount(size); n++) {
+            int field = schema.ip(size, n);
+            int fieldEnd = record.end(field);
+            int start = record.start(field);
+            if (start == fieldEnd) {
+                rejects.accept(rejectEntry(record, schema, size, "", "empty"));
+                continue;
+            }
+            // A field may hold several IPs separated by commas, semicolons or whitespace
+            while (start < fieldEnd) {
+                int end = start;
+                while (end < fieldEnd && !isIpSeparator(chars.charAt(end))) end++;
+                if (end > start) {
+                    byte[] address = IpAddresses.parse(chars, start, end);
+                    if (address != null) {
+                        ips.ip(address);
+                    } else {
+                        rejects.accept(rejectEntry(record, schema, size, chars.subSequence(start, end).toString(), "invalid"));
+                    }
+                }
+                start = end + 1;
+            }
+        }
+    }
+
+    private static boolean isIpSeparator(char c) {
+        return c == ',' || c == ';' || c <= ' ';
+    }
+
+    /**
+     * Builds a rejects report entry: line, asset, value and reason, tab-separated.
+     */
+    private static String rejectEntry(CsvRecord record, CsvSchema schema, int size, String value, String reason) {
+        int asset = schema.asset(size);
+        return record.getLineNumber() + "\t" + (asset < 0 ? "" : record.get(asset).replace('\t', ' ')) + "\t"
+                + value.replace('\t', ' ') + "\t" + reason;
+    }
+
+    /**
+     * Asks the index's group filter about a field of the record, like {@link #intern} reads it.
+     */
+    private static boolean accepts(GroupIndex index, CsvRecord record, int field) {
+        if (record.isEscaped(field)) {
+            String value = record.get(field);
+            return index.accepts(value, 0, value.length());
         }
+        return index.accepts(record.chars(), record.start(field), record.end(field));
+    }
+
+    /**
+     * Interns a field of the record into the index, from the raw characters unless the field holds an escaped quote.
+     */
+    private static int intern(GroupIndex index, CsvRecord record, int field) {
+        if (record.isEscaped(field)) {
+            String value = record.get(field);
+            return index.intern(value, 0, value.length());
+        }
+        return index.intern(record.chars(), record.start(field), record.end(field));
+    }
+
+    /**
+     * Copies aggregated sets into a caller-supplied map, merging with any existing entries.
+     */
+    private static void mergeInto(Map<String, Set<String>> target, Map<String, Set<String>> source) {
+        source.forEach((k, v) -> target.computeIfAbsent(k, key -> new HashSet<>()).addAll(v));
     }
 
     /**
@@ -0,0 +1,155 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A failed group operation, recorded in the dead-letter file so that it can be replayed later
+ * without re-running the whole CSV.
+ * <p>
+ * The dead-letter file is a tab-separated text file with one failed operation per line:
+ * <pre>
+ *   groupType  groupName  groupId  action  errorCode  attempts  ips (comma-separated)
+ * </pre>
+ * An empty groupId means the ID was not known. Tabs, newlines and backslashes inside values
+ * are escaped with a backslash. Lines starting with '#' are comments. Entries are kept in the
+ * order they failed, so replaying them in file order preserves the per-group order of edits.
+ */
+public class DeadLetter {
+
+    private static final String HEADER = "# groupType\tgroupName\tgroupId\taction\terrorCode\tattempts\tips";
+
+    private final GroupOperation operation;
+    private final String errorCode;
+    private final int attempts;
+
+    /**
+     * @param operation The operation that failed
+     * @param errorCode The failure code (GROUP_NOT_FOUND, REQUEST_FAILED or a Qualys error code)
+     * @param attempts  Number of times the operation has been attempted
+     */
+    public DeadLetter(GroupOperation operation, String errorCode, int attempts) {
+        this.operation = operation;
+        this.errorCode = errorCode;
+        this.attempts = attempts;
+    }
+
+    public GroupOperation getOperation() {
+        return operation;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Appends failed operations to the dead-letter file, creating it if needed. Appends are
+     * serialized, so concurrent jobs neither interleave their entries nor both write the header.
+     *
+     * @param path    Dead-letter file path
+     * @param letters Failed operations to append
+     * @throws IOException if the file cannot be written
+     */
+    public static synchronized void append(Path path, List<DeadLetter> letters) throws IOException {
+        if (letters.isEmpty()) return;
+        boolean exists = Files.exists(path);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (!exists) {
+                writer.write(HEADER);
+                writer.newLine();
+            }
+            for (DeadLetter letter : letters) {
+                writer.write(letter.toLine());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Replaces the dead-letter file with the given operations, or deletes it if there are none.
+     *
+     * @param path    Dead-letter file path
+     * @param letters Failed operations to keep
+     * @throws IOException if the file cannot be written
+     */
+    public static synchronized void write(Path path, List<DeadLetter> letters) throws IOException {
+        Files.deleteIfExists(path);
+        append(path, letters);
+    }
+
+    /**
+     * Reads all failed operations from the dead-letter file.
+     *
+     * @param path Dead-letter file path
+     * @return the failed operations in file order, or an empty list if the file does not exist
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static List<DeadLetter> read(Path path) throws IOException {
+        List<DeadLetter> letters = new ArrayList<>();
+        if (!Files.exists(path)) return letters;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] cols = line.split("\t", -1);
+                if (cols.length != 7) {
+                    throw new IOException("Malformed dead-letter entry at " + path + ":" + lineNumber);
+                }
+                String groupId = unescape(cols[2]);
+                String[] ips = cols[6].isEmpty() ? new String[0] : unescape(cols[6]).split(",");
+                GroupOperation operation = new GroupOperation(
+                    unescape(cols[0]), unescape(cols[1]), groupId.isEmpty() ? null : groupId, unescape(cols[3]), ips);
+                try {
+                    letters.add(new DeadLetter(operation, unescape(cols[4]), Integer.parseInt(cols[5])));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed attempt count at " + path + ":" + lineNumber, e);
+                }
+            }
+        }
+        return letters;
+    }
+
+    private String toLine() {
+        return escape(operation.getGroupType()) + '\t'
+                + escape(operation.getGroupName()) + '\t'
+                + escape(operation.getGroupId()) + '\t'
+                + escape(operation.getAction()) + '\t'
+                + escape(errorCode) + '\t'
+                + attempts + '\t'
+                + escape(String.join(",", operation.getIps()));
+    }
+
+    private static String escape(String value) {
+        if (value == null) return "";
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) return value;
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return errorCode + " (attempt " + attempts + "): " + operation;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.csvtoapiconversion;
+
+import java.util.logging.*;
+
+/**
+ * Finds the CSV structural bytes (',', '\n' and the quote character '"') in a byte buffer for the
+ * CSV tokenizer.
+ * <p>
+ * This class is the scalar implementation, which looks at one byte at a time.
+ * {@link #create()} returns the SIMD implementation ({@link VectorDelimiterScanner}) instead when
+ * the JVM was started with {@code --add-modules jdk.incubator.vector}, and falls back to this one
+ * otherwise. Setting the system property {@code csvtoapi.scanner=scalar} forces the scalar scanner.
+ * <p>
+ * A scanner keeps the result of the last ASCII check, so an instance must not be shared between threads.
+ */
+public class DelimiterScanner {
+
+    private static final Logger LOGGER = Logger.getLogger(DelimiterScanner.class.getName());
+
+    /**
+     * System property that selects the scanner: "scalar" forces the scalar scanner; by default the
+     * vector scanner is used when the incubator module is available.
+     */
+    public static final String SCANNER_PROPERTY = "csvtoapi.scanner";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_SCANNER_CLASS = "com.example.csvtoapiconversion.VectorDelimiterScanner";
+
+    protected boolean ascii;
+
+    /**
+     * Creates the fastest scanner available in this JVM.
+     *
+     * @return a vector scanner if the jdk.incubator.vector module is enabled, otherwise a scalar scanner
+     */
+    public static DelimiterScanner create() {
+        if (!"scalar".equals(System.getProperty(SCANNER_PROPERTY))
+                && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                // Loaded reflectively so that this class links without the incubator module
+                return (DelimiterScanner) Class.forName(VECTOR_SCANNER_CLASS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOGGER.warning("Vector delimiter scanner unavailable, using scalar scanner: " + e);
+            }
+        }
+        return new DelimiterScanner();
+    }
+
+    /**
+     * Finds the positions of all ',', '\n' and '"' bytes in {@code buf[from, to)}, in ascending order.
+     *
+     * @param buf       the bytes to scan
+     * @param from      start index, inclusive
+     * @param to        end index, exclusive
+     * @param positions output array, at least {@code to - from} long
+     * @return the number of positions written
+     */
+    public int scan(byte[] buf, int from, int to, int[] positions) {
+        int count = 0;
+        int bits = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            bits |= b;
+            if (b == ',' || b == '\n' || b == '"') {
+                positions[count++] = i;
+            }
+        }
+        ascii = bits >= 0;
+        return count;
+    }
+
+    /**
+     * @return true if the range given to the last {@link #scan} call held only ASCII bytes
+     */
+    public boolean wasAscii() {
+        return ascii;
+    }
+
+    /**
+     * @return a short name of the implementation, for logging
+     */
+    public String getName() {
+        return "scalar";
+    }
+}
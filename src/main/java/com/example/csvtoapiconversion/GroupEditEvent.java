@@ -0,0 +1,44 @@
+package com.example.csvtoapiconversion;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for one Qualys asset group edit ({@code action=edit}). The duration
+ * includes the wait for a request slot on the platform, which is also given on its own.
+ */
+@Name("com.example.csvtoapiconversion.GroupEdit")
+@Label("Qualys Group Edit")
+@Category({"CSV to API Conversion", "Qualys API"})
+@Description("Addition or removal of IPs to or from a Qualys asset group")
+@StackTrace(false)
+public class GroupEditEvent extends Event {
+
+    @Label("Platform")
+    String platform;
+
+    @Label("Group Name")
+    String groupName;
+
+    @Label("Group ID")
+    String groupId;
+
+    @Label("Action")
+    @Description("\"add\" or \"remove\"")
+    String action;
+
+    @Label("IP Count")
+    int ipCount;
+
+    @Label("HTTP Status")
+    @Description("HTTP status of the response, or 0 if there was none")
+    int httpStatus;
+
+    @Label("Qualys Code")
+    @Description("Error code in the Qualys response, or null if there was none")
+    String qualysCode;
+
+    @Label("Queue Time")
+    @Description("Time spent waiting for a request slot and the rate budget of the platform")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+}
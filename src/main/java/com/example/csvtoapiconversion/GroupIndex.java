@@ -0,0 +1,266 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Aggregated active and deactivated IPs for one kind of group ("owner" or "contact").
+ * <p>
+ * Group names are dictionary-encoded through a {@link SymbolTable} while the CSV is parsed,
+ * and the IP sets are kept in arrays indexed by the group's symbol ID. Group names are only
+ * materialized as Strings when they are needed for dispatch or reporting.
+ * <p>
+ * An optional {@link Listener} is told about new groups and updated groups while the index
+ * is filled, so that work for a group can start before the whole CSV has been parsed.
+ * <p>
+ * An optional filter selects the groups this run is responsible for. The parser asks
+ * {@link #accepts} before a row is decoded, so rows of rejected groups can be dropped without
+ * interning their names or parsing their timestamps; in a row kept for its other group, the
+ * rejected group is passed as ID -1. A rejected group that is interned anyway keeps its ID but
+ * collects no IPs and raises no events. The filter runs once per rejected or interned name; a
+ * name it accepts is asked about again until a row interns it.
+ */
+public class GroupIndex {
+
+    /**
+     * Receives index events on the thread that fills the index.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a group name is seen for the first time.
+         *
+         * @param index the index the group was added to
+         * @param id    the new group ID
+         */
+        void newGroup(GroupIndex index, int id);
+
+        /**
+         * Called after IPs have been added to a group.
+         *
+         * @param index the index of the group
+         * @param id    the group ID
+         */
+        void groupUpdated(GroupIndex index, int id);
+    }
+
+    private final String groupType;
+    private final SymbolTable names = new SymbolTable();
+    private Set<String>[] activeIps = newSetArray(16);
+    private Set<String>[] deactivatedIps = newSetArray(16);
+    private Listener listener;
+    private Predicate<String> filter;
+    // Decisions of the filter: by ID for interned names, and for names it rejected that the parser
+    // never interns, so that no name is kept in both tables just to remember the decision
+    private final BitSet excluded = new BitSet();
+    private final SymbolTable rejectedNames = new SymbolTable();
+    // The last name accepts() let through, which the parser interns next
+    private String accepted;
+
+    /**
+     * @param groupType "owner" or "contact"
+     */
+    public GroupIndex(String groupType) {
+        this.groupType = groupType;
+    }
+
+    /**
+     * @return "owner" or "contact"
+     */
+    public String getGroupType() {
+        return groupType;
+    }
+
+    /**
+     * @param listener Listener for new and updated groups, or null for none
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param filter Selects the group names to aggregate, or null for all; must be set before the first group is interned
+     */
+    public void setFilter(Predicate<String> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Tells whether the filter selects the group named by the characters {@code s[start, end)},
+     * without assigning the group an ID.
+     *
+     * @param s     the source characters
+     * @param start start index, inclusive
+     * @param end   end index, exclusive
+     * @return true if there is no filter or it selects the group
+     */
+    public boolean accepts(CharSequence s, int start, int end) {
+        if (filter == null) return true;
+        int id = names.lookup(s, start, end);
+        if (id >= 0) return !excluded.get(id);
+        if (rejectedNames.lookup(s, start, end) >= 0) return false;
+        // Accepted names are not cached until they are interned, and are asked about again until then
+        String name = s.subSequence(start, end).toString();
+        if (filter.test(name)) {
+            accepted = name;
+            return true;
+        }
+        rejectedNames.intern(name);
+        return false;
+    }
+
+    /**
+     * Returns the group ID for the characters {@code s[start, end)}, assigning one if needed.
+     *
+     * @param s     the source characters
+     * @param start start index, inclusive
+     * @param end   end index, exclusive
+     * @return the dense group ID
+     */
+    public int intern(CharSequence s, int start, int end) {
+        int size = names.size();
+        int id = names.intern(s, start, end);
+        if (id == size) {
+            if (filter != null && !isAccepted(names.name(id))) {
+                excluded.set(id);
+            } else if (listener != null) {
+                listener.newGroup(this, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Decides on a newly interned name, reusing the decision {@link #accepts} made for it.
+     */
+    private boolean isAccepted(String name) {
+        if (name.equals(accepted)) return true;
+        return rejectedNames.lookup(name) < 0 && filter.test(name);
+    }
+
+    /**
+     * @param id group ID
+     * @return false if the filter rejected the group, so that IPs added to it are dropped
+     */
+    public boolean isSelected(int id) {
+        return !excluded.get(id);
+    }
+
+    /**
+     * @param name group name
+     * @return the group ID, or -1 if the name has not been seen
+     */
+    public int lookup(String name) {
+        return names.lookup(name);
+    }
+
+    /**
+     * Adds IPs to the active set of a group, unless the filter rejected the group.
+     *
+     * @param id    group ID returned by {@link #intern}, or -1 for a group the filter rejected
+     * @param ips   array holding the IPs
+     * @param count number of IPs to take from the start of the array
+     */
+    public void addActive(int id, String[] ips, int count) {
+        if (id < 0 || excluded.get(id)) return;
+        if (id >= activeIps.length) {
+            activeIps = Arrays.copyOf(activeIps, Math.max(activeIps.length * 2, id + 1));
+        }
+        activeIps[id] = addAll(activeIps[id], ips, count);
+        if (listener != null) {
+            listener.groupUpdated(this, id);
+        }
+    }
+
+    /**
+     * Adds IPs to the deactivated set of a group, unless the filter rejected the group.
+     *
+     * @param id    group ID returned by {@link #intern}, or -1 for a group the filter rejected
+     * @param ips   array holding the IPs
+     * @param count number of IPs to take from the start of the array
+     */
+    public void addDeactivated(int id, String[] ips, int count) {
+        if (id < 0 || excluded.get(id)) return;
+        if (id >= deactivatedIps.length) {
+            deactivatedIps = Arrays.copyOf(deactivatedIps, Math.max(deactivatedIps.length * 2, id + 1));
+        }
+        deactivatedIps[id] = addAll(deactivatedIps[id], ips, count);
+        if (listener != null) {
+            listener.groupUpdated(this, id);
+        }
+    }
+
+    /**
+     * @return the number of distinct group names seen; IDs are 0 to size() - 1
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * @param id group ID
+     * @return the group name
+     */
+    public String name(int id) {
+        return names.name(id);
+    }
+
+    /**
+     * @param id group ID
+     * @return the active IPs of the group, or null if the group has none
+     */
+    public Set<String> getActiveIps(int id) {
+        return id < activeIps.length ? activeIps[id] : null;
+    }
+
+    /**
+     * @param id group ID
+     * @return the deactivated IPs of the group, or null if the group has none
+     */
+    public Set<String> getDeactivatedIps(int id) {
+        return id < deactivatedIps.length ? deactivatedIps[id] : null;
+    }
+
+    /**
+     * Materializes the active IPs as a map of group name to IPs, in first-seen order.
+     *
+     * @return group name → set of active IPs
+     */
+    public Map<String, Set<String>> toActiveMap() {
+        return toMap(activeIps);
+    }
+
+    /**
+     * Materializes the deactivated IPs as a map of group name to IPs, in first-seen order.
+     *
+     * @return group name → set of deactivated IPs
+     */
+    public Map<String, Set<String>> toDeactivatedMap() {
+        return toMap(deactivatedIps);
+    }
+
+    private Map<String, Set<String>> toMap(Set<String>[] sets) {
+        Map<String, Set<String>> map = new LinkedHashMap<>();
+        for (int id = 0; id < Math.min(sets.length, names.size()); id++) {
+            if (sets[id] != null) {
+                map.put(names.name(id), sets[id]);
+            }
+        }
+        return map;
+    }
+
+    private static Set<String> addAll(Set<String> set, String[] ips, int count) {
+        if (set == null) {
+            set = new HashSet<>();
+        }
+        for (int i = 0; i < count; i++) {
+            set.add(ips[i]);
+        }
+        return set;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] newSetArray(int length) {
+        return (Set<String>[]) new Set<?>[length];
+    }
+}
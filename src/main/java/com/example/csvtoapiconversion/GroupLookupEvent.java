@@ -0,0 +1,34 @@
+package com.example.csvtoapiconversion;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for one Qualys group-ID lookup ({@code action=list&title=...}). The
+ * duration includes the wait for a request slot on the platform, which is also given on its own.
+ */
+@Name("com.example.csvtoapiconversion.GroupLookup")
+@Label("Qualys Group Lookup")
+@Category({"CSV to API Conversion", "Qualys API"})
+@Description("Lookup of a Qualys asset group ID by group name")
+@StackTrace(false)
+public class GroupLookupEvent extends Event {
+
+    @Label("Platform")
+    String platform;
+
+    @Label("Group Name")
+    String groupName;
+
+    @Label("Group ID")
+    @Description("The resolved ID, or null if the group was not found or the request failed")
+    String groupId;
+
+    @Label("HTTP Status")
+    @Description("HTTP status of the response, or 0 if there was none")
+    int httpStatus;
+
+    @Label("Queue Time")
+    @Description("Time spent waiting for a request slot and the rate budget of the platform")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueTime;
+}
@@ -0,0 +1,61 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+
+/**
+ * The current IP membership of one Qualys asset group, as listed by Qualys: single IPs and
+ * IP ranges ("10.0.0.1-10.0.0.20").
+ * <p>
+ * Single IPs are kept in canonical form (see {@link IpAddresses}) so they can be compared
+ * with the canonical IPs from the CSV.
+ */
+public class GroupMembership {
+
+    private final Set<String> ips = new HashSet<>();
+    private final List<byte[][]> ranges = new ArrayList<>();
+
+    /**
+     * Adds an IP or an IP range from the group's IP set. Values that are not valid addresses are ignored.
+     *
+     * @param value a single IP or a range "first-last"
+     */
+    public void add(String value) {
+        int dash = value.indexOf('-');
+        if (dash < 0) {
+            String ip = IpAddresses.canonicalize(value.trim());
+            if (ip != null) ips.add(ip);
+            return;
+        }
+        byte[] first = IpAddresses.parse(value, 0, dash);
+        byte[] last = IpAddresses.parse(value, dash + 1, value.length());
+        if (first != null && last != null && first.length == last.length) {
+            ranges.add(new byte[][]{first, last});
+        }
+    }
+
+    /**
+     * @param ip a canonical IP
+     * @return true if the IP is in the group, either on its own or inside one of its ranges
+     */
+    public boolean contains(String ip) {
+        if (ips.contains(ip)) return true;
+        if (ranges.isEmpty()) return false;
+        byte[] address = IpAddresses.parse(ip, 0, ip.length());
+        if (address == null) return false;
+        for (byte[][] range : ranges) {
+            if (range[0].length == address.length
+                    && Arrays.compareUnsigned(range[0], address) <= 0
+                    && Arrays.compareUnsigned(address, range[1]) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of single IPs plus the number of ranges
+     */
+    public int size() {
+        return ips.size() + ranges.size();
+    }
+}
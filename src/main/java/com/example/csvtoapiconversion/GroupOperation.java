@@ -0,0 +1,64 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+
+/**
+ * A single Qualys asset group edit: add or remove a set of IPs for one owner or contact group.
+ * The Qualys group ID is optional; when it is not known it is looked up at dispatch time.
+ */
+public class GroupOperation {
+    private final String groupType;
+    private final String groupName;
+    private final String groupId;
+    private final String action;
+    private final String[] ips;
+
+    /**
+     * @param groupType "owner" or "contact"
+     * @param groupName Name of the Qualys asset group
+     * @param groupId   Qualys asset group ID, or null if not resolved yet
+     * @param action    "add" or "remove"
+     * @param ips       IP addresses to add or remove
+     */
+    public GroupOperation(String groupType, String groupName, String groupId, String action, String[] ips) {
+        this.groupType = groupType;
+        this.groupName = groupName;
+        this.groupId = groupId;
+        this.action = action;
+        this.ips = ips;
+    }
+
+    public String getGroupType() {
+        return groupType;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String[] getIps() {
+        return ips;
+    }
+
+    /**
+     * @param groupId the resolved Qualys asset group ID
+     * @return a copy of this operation with the group ID set
+     */
+    public GroupOperation withGroupId(String groupId) {
+        return new GroupOperation(groupType, groupName, groupId, action, ips);
+    }
+
+    @Override
+    public String toString() {
+        return action + " " + Arrays.toString(ips) + " " + groupType + " group: " + groupName
+                + (groupId == null ? "" : " (id " + groupId + ")");
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.logging.*;
+
+/**
+ * Runs group operations concurrently while keeping only the ordering that matters.
+ * <p>
+ * The only dependency between operations is within one Qualys group: its removals must finish
+ * before its additions, so that an IP that is both deactivated and active ends up in the group.
+ * Owner and contact groups with the same name are the same Qualys group. The operations are
+ * therefore split into one chain per group name, each chain holding that group's removals
+ * followed by its additions, and the chains run independently on a fixed pool of threads.
+ * <p>
+ * Chains are started largest first (by IP count), so that the longest edits do not end up as a
+ * long tail after everything else has finished.
+ * <p>
+ * If an operation hits a fatal Qualys error, no further operation is sent; the operations that
+ * were not sent are reported as failures with an attempt count of 0, and {@link #run} rethrows
+ * the error once all threads have stopped.
+ */
+public class GroupScheduler {
+
+    private final int concurrency;
+    private final Function<GroupOperation, String> executor;
+    private final Logger logger;
+    private final List<DeadLetter> failures = Collections.synchronizedList(new ArrayList<>());
+    private volatile RuntimeException error;
+
+    /**
+     * @param concurrency Number of chains that may run at the same time
+     * @param executor    Executes one operation and returns null on success or the failure code;
+     *                    called from several threads at once
+     * @param logger      Logger for output
+     */
+    public GroupScheduler(int concurrency, Function<GroupOperation, String> executor, Logger logger) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+        this.executor = executor;
+        this.logger = logger;
+    }
+
+    /**
+     * Splits the operations into one chain per group name, keeping their relative order within a
+     * chain, and orders the chains by descending IP count.
+     *
+     * @param operations Operations with removals before additions
+     * @return the chains, largest first
+     */
+    public static List<List<GroupOperation>> chains(List<GroupOperation> operations) {
+        Map<String, List<GroupOperation>> byGroup = new LinkedHashMap<>();
+        for (GroupOperation op : operations) {
+            byGroup.computeIfAbsent(op.getGroupName(), name -> new ArrayList<>()).add(op);
+        }
+        List<List<GroupOperation>> chains = new ArrayList<>(byGroup.values());
+        // Stable sort: chains of equal weight keep their plan order
+        chains.sort(Comparator.comparingLong(GroupScheduler::weight).reversed());
+        return chains;
+    }
+
+    /**
+     * @return the cost estimate of a chain: its IPs plus one per request
+     */
+    private static long weight(List<GroupOperation> chain) {
+        long weight = 0;
+        for (GroupOperation op : chain) {
+            weight += op.getIps().length + 1;
+        }
+        return weight;
+    }
+
+    /**
+     * Runs all operations and waits until they have finished.
+     *
+     * @param operations Operations with removals before additions
+     * @throws QualysFatalErrorException if an operation hit a fatal Qualys error code
+     */
+    public void run(List<GroupOperation> operations) {
+        List<List<GroupOperation>> chains = chains(operations);
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info(String.format("Scheduling %d operations in %d group chains on %d threads",
+                operations.size(), chains.size(), concurrency));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, chains.size())));
+        try {
+            for (List<GroupOperation> chain : chains) {
+                pool.execute(() -> runChain(chain));
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return the operations that failed, or were not sent because an earlier operation hit a fatal error
+     */
+    public List<DeadLetter> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    private void runChain(List<GroupOperation> chain) {
+        for (GroupOperation op : chain) {
+            RuntimeException earlier = error;
+            if (earlier != null) {
+                String errorCode = earlier instanceof QualysFatalErrorException fatal ? fatal.getErrorCode() : "REQUEST_FAILED";
+                failures.add(new DeadLetter(op, errorCode, 0));
+                continue;
+            }
+            try {
+                String errorCode = executor.apply(op);
+                if (errorCode != null) {
+                    failures.add(new DeadLetter(op, errorCode, 1));
+                }
+            } catch (QualysFatalErrorException e) {
+                failures.add(new DeadLetter(op, e.getErrorCode(), 1));
+                error = e;
+            } catch (RuntimeException e) {
+                logger.severe("Operation failed: " + op + ": " + e.getMessage());
+                failures.add(new DeadLetter(op, "REQUEST_FAILED", 1));
+                error = e;
+            }
+        }
+    }
+}
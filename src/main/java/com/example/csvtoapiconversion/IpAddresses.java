@@ -0,0 +1,219 @@
+package com.example.csvtoapiconversion;
+
+/**
+ * Validation and canonicalization of IPv4 and IPv6 addresses, without InetAddress or DNS.
+ * <p>
+ * Canonical forms:
+ * <ul>
+ *   <li>IPv4: dotted decimal without leading zeros ("010.001.002.003" becomes "10.1.2.3").</li>
+ *   <li>IPv6: RFC 5952 text form: lowercase hex, no leading zeros, the longest run of two or more
+ *       zero groups compressed to "::" (the first one on a tie), and IPv4-mapped addresses
+ *       written as "::ffff:a.b.c.d".</li>
+ * </ul>
+ * Different spellings of the same address therefore collapse to one value before they are
+ * aggregated and sent to Qualys. Hostnames, zone IDs, CIDR suffixes and anything else that is
+ * not a literal address are rejected.
+ */
+public class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    /**
+     * Returns the canonical form of the address in {@code s[start, end)}.
+     *
+     * @param s     the source characters
+     * @param start start index, inclusive
+     * @param end   end index, exclusive
+     * @return the canonical address, or null if the range is not a valid IPv4 or IPv6 literal
+     */
+    public static String canonicalize(CharSequence s, int start, int end) {
+        byte[] address = parse(s, start, end);
+        return address == null ? null : format(address);
+    }
+
+    /**
+     * @param ip an address string
+     * @return the canonical form, or null if the string is not a valid IPv4 or IPv6 literal
+     */
+    public static String canonicalize(String ip) {
+        return canonicalize(ip, 0, ip.length());
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal.
+     *
+     * @param s     the source characters
+     * @param start start index, inclusive
+     * @param end   end index, exclusive
+     * @return 4 bytes for IPv4, 16 bytes for IPv6 (network order), or null if invalid
+     */
+    public static byte[] parse(CharSequence s, int start, int end) {
+        if (start >= end) return null;
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == ':') {
+                return parseIpv6(s, start, end);
+            }
+        }
+        byte[] address = new byte[4];
+        return parseIpv4(s, start, end, address, 0) ? address : null;
+    }
+
+    /**
+     * Formats a parsed address in canonical form.
+     *
+     * @param address 4 or 16 bytes in network order
+     * @return the canonical text form
+     */
+    public static String format(byte[] address) {
+        if (address.length == 4) {
+            return formatIpv4(address, 0, new StringBuilder(15)).toString();
+        }
+        if (address.length != 16) {
+            throw new IllegalArgumentException("Address must be 4 or 16 bytes");
+        }
+        int[] groups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            groups[i] = ((address[2 * i] & 0xFF) << 8) | (address[2 * i + 1] & 0xFF);
+        }
+        StringBuilder sb = new StringBuilder(39);
+        // IPv4-mapped addresses keep the dotted tail (RFC 5952 section 5)
+        if (groups[0] == 0 && groups[1] == 0 && groups[2] == 0 && groups[3] == 0 && groups[4] == 0 && groups[5] == 0xFFFF) {
+            return formatIpv4(address, 12, sb.append("::ffff:")).toString();
+        }
+
+        // Find the longest run of zero groups (length >= 2)
+        int bestStart = -1, bestLength = 0;
+        for (int i = 0; i < 8; ) {
+            if (groups[i] != 0) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i < 8 && groups[i] == 0) i++;
+            if (i - runStart > bestLength) {
+                bestStart = runStart;
+                bestLength = i - runStart;
+            }
+        }
+        if (bestLength < 2) bestStart = -1;
+
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                sb.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':') {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString(groups[i]));
+        }
+        return sb.toString();
+    }
+
+    private static boolean parseIpv4(CharSequence s, int start, int end, byte[] out, int offset) {
+        int part = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 3) return false;
+                value = value * 10 + (c - '0');
+            } else if (c == '.') {
+                if (digits == 0 || value > 255 || part == 3) return false;
+                out[offset + part++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else {
+                return false;
+            }
+        }
+        if (digits == 0 || value > 255 || part != 3) return false;
+        out[offset + 3] = (byte) value;
+        return true;
+    }
+
+    private static byte[] parseIpv6(CharSequence s, int start, int end) {
+        byte[] address = new byte[16];
+        int[] groups = new int[8];
+        int count = 0;
+        int compressAt = -1;
+        int i = start;
+
+        if (s.charAt(i) == ':') {
+            // Only "::" may start an address
+            if (end - i < 2 || s.charAt(i + 1) != ':') return null;
+            compressAt = 0;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            while (i < end && i - groupStart < 5) {
+                int digit = hexDigit(s.charAt(i));
+                if (digit < 0) break;
+                value = (value << 4) | digit;
+                i++;
+            }
+            int length = i - groupStart;
+            if (i < end && s.charAt(i) == '.') {
+                // Embedded IPv4 in the last 32 bits
+                if (count > 6) return null;
+                byte[] tail = new byte[4];
+                if (!parseIpv4(s, groupStart, end, tail, 0)) return null;
+                groups[count++] = ((tail[0] & 0xFF) << 8) | (tail[1] & 0xFF);
+                groups[count++] = ((tail[2] & 0xFF) << 8) | (tail[3] & 0xFF);
+                i = end;
+                break;
+            }
+            if (length == 0 || length > 4 || count == 8) return null;
+            groups[count++] = value;
+            if (i == end) break;
+            if (s.charAt(i) != ':') return null;
+            i++;
+            if (i < end && s.charAt(i) == ':') {
+                if (compressAt >= 0) return null;
+                compressAt = count;
+                i++;
+            } else if (i == end) {
+                // Trailing single colon
+                return null;
+            }
+        }
+
+        if (compressAt >= 0) {
+            if (count > 7) return null;
+            int shift = 8 - count;
+            for (int g = count - 1; g >= compressAt; g--) {
+                groups[g + shift] = groups[g];
+            }
+            for (int g = compressAt; g < compressAt + shift; g++) {
+                groups[g] = 0;
+            }
+        } else if (count != 8) {
+            return null;
+        }
+        for (int g = 0; g < 8; g++) {
+            address[2 * g] = (byte) (groups[g] >>> 8);
+            address[2 * g + 1] = (byte) groups[g];
+        }
+        return address;
+    }
+
+    private static StringBuilder formatIpv4(byte[] address, int offset, StringBuilder sb) {
+        sb.append(address[offset] & 0xFF).append('.')
+          .append(address[offset + 1] & 0xFF).append('.')
+          .append(address[offset + 2] & 0xFF).append('.')
+          .append(address[offset + 3] & 0xFF);
+        return sb;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+}
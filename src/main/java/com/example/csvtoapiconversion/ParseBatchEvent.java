@@ -0,0 +1,46 @@
+package com.example.csvtoapiconversion;
+
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event for a batch of CSV rows parsed (or replayed from a snapshot) by
+ * {@link CsvUtils}. Emitted every {@link #BATCH_ROWS} rows and for the last, partial batch.
+ */
+@Name("com.example.csvtoapiconversion.ParseBatch")
+@Label("CSV Row Batch")
+@Category({"CSV to API Conversion", "Parsing"})
+@Description("A batch of CSV rows tokenized and aggregated into the owner and contact indexes")
+@StackTrace(false)
+public class ParseBatchEvent extends Event {
+
+    /**
+     * Rows per event: large enough that the events cost nothing measurable, small enough to show stalls.
+     */
+    static final int BATCH_ROWS = 65_536;
+
+    @Label("Source")
+    @Description("\"csv\" when parsing the CSV text, \"snapshot\" when replaying a parsed snapshot")
+    String source;
+
+    @Label("First Row")
+    @Description("Index of the first data row of the batch, from 0")
+    long firstRow;
+
+    @Label("Rows")
+    int rows;
+
+    /**
+     * Starts the next batch.
+     *
+     * @param source   "csv" or "snapshot"
+     * @param firstRow index of the first data row of the batch
+     * @return the started event
+     */
+    static ParseBatchEvent start(String source, long firstRow) {
+        ParseBatchEvent event = new ParseBatchEvent();
+        event.source = source;
+        event.firstRow = firstRow;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,554 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.logging.*;
+import java.util.zip.*;
+
+/**
+ * Binary cache of the parsed rows of a CSV file, written next to the input as
+ * {@code <csv>.snapshot}, so that a rerun on the same file (with a different start timestamp,
+ * or after a failed dispatch) skips tokenizing, IP parsing and date parsing.
+ * <p>
+ * The snapshot holds every row the column layout accepts, before the start-timestamp filter,
+ * and is keyed by the size, modification time and CRC32C of the CSV and by the column layout.
+ * File layout (big-endian):
+ * <pre>
+ *   int     magic "CTSN", int version
+ *   long    CSV size, long CSV modification time (ms), long CSV CRC32C
+ *   string  column layout key
+ *   long    row count
+ *   long[7] section lengths, followed by the sections:
+ *     owner ids        int per row (index into the owner dictionary)
+ *     contact ids      int per row
+ *     create times     long per row, epoch seconds (UTC), Long.MIN_VALUE if empty, or
+ *                      Long.MIN_VALUE + 1 if not a valid date
+ *     deactivated      long per row, as above
+ *     IP counts        int per row
+ *     IPs              per IP: length byte (4 or 16) and the address bytes
+ *     strings          owner dictionary, contact dictionary and rejects (row, entry)
+ * </pre>
+ * Strings are an int length followed by UTF-8 bytes. The column sections are memory-mapped on
+ * reuse and read sequentially; the snapshot is only ever replayed in row order.
+ */
+public class ParsedSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(ParsedSnapshot.class.getName());
+
+    private static final int MAGIC = 0x4354534E; // "CTSN"
+    private static final int VERSION = 2;
+    private static final int SECTIONS = 7;
+    /** Timestamp value of an empty timestamp field. */
+    static final long NONE = Long.MIN_VALUE;
+    /** Timestamp value of a timestamp field that is not a valid date. */
+    static final long INVALID = Long.MIN_VALUE + 1;
+
+    private static final byte ACCEPTED = 1;
+    private static final byte REJECTED = 2;
+    // Mapped window size for sections larger than one mapping
+    private static final long WINDOW = 1L << 28;
+
+    private final Path path;
+    private final long rows;
+    private final long[] sectionOffsets = new long[SECTIONS];
+    private final long[] sectionLengths = new long[SECTIONS];
+
+    private ParsedSnapshot(Path path, long rows, long headerLength, long[] lengths) {
+        this.path = path;
+        this.rows = rows;
+        long offset = headerLength;
+        for (int i = 0; i < SECTIONS; i++) {
+            sectionOffsets[i] = offset;
+            sectionLengths[i] = lengths[i];
+            offset += lengths[i];
+        }
+    }
+
+    /**
+     * @param csvPath the CSV file
+     * @return where the snapshot of that file is kept
+     */
+    public static Path pathFor(Path csvPath) {
+        return csvPath.resolveSibling(csvPath.getFileName() + ".snapshot");
+    }
+
+    /**
+     * @return the number of rows in the snapshot
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Opens the snapshot of a CSV file if it exists and is still valid for the file's current
+     * contents and the given column layout.
+     *
+     * @param csvPath   the CSV file
+     * @param schemaKey column layout key (see {@link CsvSchema#key()})
+     * @return the snapshot, or null if there is none or it is stale
+     * @throws IOException if the CSV cannot be read
+     */
+    public static ParsedSnapshot open(Path csvPath, String schemaKey) throws IOException {
+        Path path = pathFor(csvPath);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        long size = Files.size(csvPath);
+        long modified = Files.getLastModifiedTime(csvPath).toMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.info("Ignoring snapshot " + path + ": not a snapshot of this version");
+                return null;
+            }
+            long snapshotSize = in.readLong();
+            long snapshotModified = in.readLong();
+            long snapshotCrc = in.readLong();
+            String snapshotSchema = readString(in);
+            if (snapshotSize != size || snapshotModified != modified || !snapshotSchema.equals(schemaKey)) {
+                LOGGER.info("Ignoring stale snapshot " + path + ": CSV file or column layout changed");
+                return null;
+            }
+            long rows = in.readLong();
+            long[] lengths = new long[SECTIONS];
+            for (int i = 0; i < SECTIONS; i++) {
+                lengths[i] = in.readLong();
+            }
+            long headerLength = 4 + 4 + 8 + 8 + 8 + 4 + snapshotSchema.getBytes(StandardCharsets.UTF_8).length + 8 + 8L * SECTIONS;
+            if (headerLength + Arrays.stream(lengths).sum() != Files.size(path)) {
+                LOGGER.info("Ignoring truncated snapshot " + path);
+                return null;
+            }
+            if (crc32c(csvPath) != snapshotCrc) {
+                LOGGER.info("Ignoring stale snapshot " + path + ": CSV contents changed");
+                return null;
+            }
+            return new ParsedSnapshot(path, rows, headerLength, lengths);
+        } catch (EOFException e) {
+            LOGGER.info("Ignoring truncated snapshot " + path);
+            return null;
+        }
+    }
+
+    /**
+     * Computes the CRC32C of a file.
+     */
+    static long crc32c(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Replays the rows into the indexes, with the same filter and aggregation as
+     * {@link CsvUtils#processCsv(Path, LocalDateTime, CsvSchema, GroupIndex, GroupIndex, List, boolean, CidrFilter)}:
+     * owner and contact names are interned in the same order, and rejects are reported for the
+     * same rows.
+     *
+     * @param startTimestamp Optional filter for create/deactivated timestamps
+     * @param owners         Output: owner index
+     * @param contacts       Output: contact index
+     * @param rejects        Output: rejected IP fields
+     * @param ipFilter       Optional filter for IPs; the snapshot itself always holds every IP
+     * @param firstRow       Called once after the first row has been replayed
+     * @throws IOException if the snapshot cannot be read
+     */
+    public void replay(LocalDateTime startTimestamp, GroupIndex owners, GroupIndex contacts,
+                       List<String> rejects, CidrFilter ipFilter, Runnable firstRow) throws IOException {
+        long start = startSecond(startTimestamp);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<String> ownerNames = new ArrayList<>();
+            List<String> contactNames = new ArrayList<>();
+            long[] rejectRows;
+            String[] rejectEntries;
+            InputStream strings = Channels.newInputStream(channel.position(sectionOffsets[6]));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(strings, 1 << 16));
+            for (int i = in.readInt(); i > 0; i--) ownerNames.add(readString(in));
+            for (int i = in.readInt(); i > 0; i--) contactNames.add(readString(in));
+            rejectRows = new long[in.readInt()];
+            rejectEntries = new String[rejectRows.length];
+            for (int i = 0; i < rejectRows.length; i++) {
+                rejectRows[i] = in.readLong();
+                rejectEntries[i] = readString(in);
+            }
+
+            // Snapshot dictionary ID -> index ID, interned on first use so IDs follow the same order as a parse
+            int[] ownerIds = new int[ownerNames.size()];
+            int[] contactIds = new int[contactNames.size()];
+            Arrays.fill(ownerIds, -1);
+            Arrays.fill(contactIds, -1);
+            // Snapshot dictionary ID -> ACCEPTED/REJECTED by the group filters, 0 until asked
+            byte[] ownerDecisions = new byte[ownerNames.size()];
+            byte[] contactDecisions = new byte[contactNames.size()];
+
+            Column ownerColumn = new Column(channel, sectionOffsets[0], sectionLengths[0]);
+            Column contactColumn = new Column(channel, sectionOffsets[1], sectionLengths[1]);
+            Column createColumn = new Column(channel, sectionOffsets[2], sectionLengths[2]);
+            Column deactivatedColumn = new Column(channel, sectionOffsets[3], sectionLengths[3]);
+            Column countColumn = new Column(channel, sectionOffsets[4], sectionLengths[4]);
+            Column ipColumn = new Column(channel, sectionOffsets[5], sectionLengths[5]);
+            byte[] ipv4 = new byte[4];
+            byte[] ipv6 = new byte[16];
+            String[] ips = new String[4];
+            int nextReject = 0;
+            ParseBatchEvent batch = ParseBatchEvent.start("snapshot", 0);
+            for (long row = 0; row < rows; row++) {
+                if (batch.rows == ParseBatchEvent.BATCH_ROWS) {
+                    batch.commit();
+                    batch = ParseBatchEvent.start("snapshot", row);
+                }
+                batch.rows++;
+                int owner = ownerColumn.getInt();
+                int contact = contactColumn.getInt();
+                long create = createColumn.getLong();
+                long deactivated = deactivatedColumn.getLong();
+                int count = countColumn.getInt();
+                boolean ownerSelected = accepts(owners, ownerDecisions, owner, ownerNames);
+                boolean contactSelected = accepts(contacts, contactDecisions, contact, contactNames);
+                boolean selected = ownerSelected || contactSelected;
+                if (selected && (create == INVALID || deactivated == INVALID)) {
+                    // Where parsing the CSV would have failed on the date of this row
+                    throw new DateTimeException("Invalid timestamp in data row " + (row + 1) + " of " + path);
+                }
+                if (!selected || skip(start, create, deactivated)) {
+                    ipColumn.skipIps(count);
+                    while (nextReject < rejectRows.length && rejectRows[nextReject] == row) nextReject++;
+                } else {
+                    if (contactSelected && contactIds[contact] < 0) contactIds[contact] = intern(contacts, contactNames.get(contact));
+                    if (ownerSelected && ownerIds[owner] < 0) ownerIds[owner] = intern(owners, ownerNames.get(owner));
+                    int ownerId = ownerSelected ? ownerIds[owner] : -1;
+                    int contactId = contactSelected ? contactIds[contact] : -1;
+                    while (nextReject < rejectRows.length && rejectRows[nextReject] == row) {
+                        rejects.add(rejectEntries[nextReject++]);
+                    }
+                    if (ips.length < count) ips = new String[count];
+                    int kept = 0;
+                    for (int i = 0; i < count; i++) {
+                        byte[] address = ipColumn.get() == 4 ? ipv4 : ipv6;
+                        ipColumn.get(address);
+                        if (ipFilter == null || ipFilter.matches(address)) {
+                            ips[kept++] = IpAddresses.format(address);
+                        }
+                    }
+                    if (kept > 0) {
+                        if (deactivated == NONE) {
+                            owners.addActive(ownerId, ips, kept);
+                            contacts.addActive(contactId, ips, kept);
+                        } else {
+                            owners.addDeactivated(ownerId, ips, kept);
+                            contacts.addDeactivated(contactId, ips, kept);
+                        }
+                    }
+                }
+                if (row == 0) firstRow.run();
+            }
+            if (batch.rows > 0) {
+                batch.commit();
+            }
+        }
+    }
+
+    /**
+     * {@link GroupIndex#accepts} for a dictionary name, decided once per dictionary entry.
+     */
+    private static boolean accepts(GroupIndex index, byte[] decisions, int name, List<String> names) {
+        if (decisions[name] == 0) {
+            String s = names.get(name);
+            decisions[name] = index.accepts(s, 0, s.length()) ? ACCEPTED : REJECTED;
+        }
+        return decisions[name] == ACCEPTED;
+    }
+
+    private static int intern(GroupIndex index, String name) {
+        return index.intern(name, 0, name.length());
+    }
+
+    /**
+     * The start timestamp in epoch seconds (UTC), rounded up to the next second if it has a
+     * fraction: row timestamps are whole seconds, so a row is before the rounded start exactly
+     * when it is before the start itself.
+     */
+    static long startSecond(LocalDateTime startTimestamp) {
+        if (startTimestamp == null) {
+            return NONE;
+        }
+        long seconds = startTimestamp.toEpochSecond(ZoneOffset.UTC);
+        return startTimestamp.getNano() > 0 ? seconds + 1 : seconds;
+    }
+
+    /**
+     * The start-timestamp filter of {@link CsvUtils} on epoch seconds: skips a row if every
+     * timestamp it has is before the start.
+     */
+    static boolean skip(long start, long create, long deactivated) {
+        if (start == NONE) {
+            return false;
+        }
+        boolean beforeCreate = create != NONE && create < start;
+        boolean beforeDeactivated = deactivated != NONE && deactivated < start;
+        if (beforeCreate && (deactivated == NONE || beforeDeactivated)) {
+            return true;
+        }
+        return beforeDeactivated && (create == NONE || beforeCreate);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Sequential reader over one section, mapped in windows so sections may exceed 2 GB.
+     */
+    private static final class Column {
+        private final FileChannel channel;
+        private final long end;
+        private long windowStart;
+        private MappedByteBuffer buffer;
+
+        Column(FileChannel channel, long offset, long length) throws IOException {
+            this.channel = channel;
+            this.end = offset + length;
+            map(offset);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, end - position));
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                map(windowStart + buffer.position());
+                if (buffer.remaining() < bytes) {
+                    throw new EOFException("Snapshot section ends early");
+                }
+            }
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        int get() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        void get(byte[] bytes) throws IOException {
+            ensure(bytes.length);
+            buffer.get(bytes);
+        }
+
+        void skipIps(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                int length = get();
+                ensure(length);
+                buffer.position(buffer.position() + length);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot while the CSV is parsed. Each column goes to its own temporary file next
+     * to the snapshot; {@link #commit} concatenates them behind the header and atomically replaces
+     * the snapshot, so a failed or interrupted parse never leaves a partial snapshot behind.
+     */
+    static final class Writer implements Closeable {
+        private final Path path;
+        private final Path[] columnFiles = new Path[SECTIONS - 1];
+        private final DataOutputStream[] columns = new DataOutputStream[SECTIONS - 1];
+        private final SymbolTable ownerNames = new SymbolTable();
+        private final SymbolTable contactNames = new SymbolTable();
+        private final List<Long> rejectRows = new ArrayList<>();
+        private final List<String> rejectEntries = new ArrayList<>();
+        private long rows;
+        private int rowIps;
+        private boolean committed;
+
+        /**
+         * @param csvPath the CSV file being parsed
+         * @throws IOException if the temporary column files cannot be created
+         */
+        Writer(Path csvPath) throws IOException {
+            this.path = pathFor(csvPath);
+            Path dir = path.toAbsolutePath().getParent();
+            try {
+                for (int i = 0; i < columns.length; i++) {
+                    columnFiles[i] = Files.createTempFile(dir, path.getFileName().toString(), ".col" + i);
+                    columns[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(columnFiles[i]), 1 << 16));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Starts a row. Its IPs follow with {@link #ip} and its rejects with {@link #reject}.
+         *
+         * @param record       the CSV record
+         * @param contactField field index of the contact
+         * @param ownerField   field index of the owner
+         * @param create       create time in epoch seconds, or {@link #NONE}
+         * @param deactivated  deactivated time in epoch seconds, or {@link #NONE}
+         */
+        void row(CsvRecord record, int contactField, int ownerField, long create, long deactivated) throws IOException {
+            endRow();
+            columns[0].writeInt(intern(ownerNames, record, ownerField));
+            columns[1].writeInt(intern(contactNames, record, contactField));
+            columns[2].writeLong(create);
+            columns[3].writeLong(deactivated);
+            rows++;
+        }
+
+        private static int intern(SymbolTable names, CsvRecord record, int field) {
+            if (record.isEscaped(field)) {
+                return names.intern(record.get(field));
+            }
+            return names.intern(record.chars(), record.start(field), record.end(field));
+        }
+
+        /**
+         * Adds a parsed IP (4 or 16 bytes) to the current row.
+         */
+        void ip(byte[] address) throws IOException {
+            columns[5].writeByte(address.length);
+            columns[5].write(address);
+            rowIps++;
+        }
+
+        /**
+         * Adds a rejects report entry to the current row.
+         */
+        void reject(String entry) {
+            rejectRows.add(rows - 1);
+            rejectEntries.add(entry);
+        }
+
+        private void endRow() throws IOException {
+            if (rows > 0) {
+                columns[4].writeInt(rowIps);
+            }
+            rowIps = 0;
+        }
+
+        /**
+         * Writes the snapshot for a CSV file whose contents had the given fingerprint.
+         *
+         * @param size      CSV size when parsing started
+         * @param modified  CSV modification time (ms) when parsing started
+         * @param crc       CRC32C of the parsed bytes
+         * @param schemaKey column layout key
+         * @return the written snapshot
+         * @throws IOException if the snapshot cannot be written
+         */
+        ParsedSnapshot commit(long size, long modified, long crc, String schemaKey) throws IOException {
+            endRow();
+            Path strings = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".str");
+            Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                for (DataOutputStream column : columns) {
+                    column.close();
+                }
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(strings), 1 << 16))) {
+                    out.writeInt(ownerNames.size());
+                    for (int i = 0; i < ownerNames.size(); i++) writeString(out, ownerNames.name(i));
+                    out.writeInt(contactNames.size());
+                    for (int i = 0; i < contactNames.size(); i++) writeString(out, contactNames.name(i));
+                    out.writeInt(rejectRows.size());
+                    for (int i = 0; i < rejectRows.size(); i++) {
+                        out.writeLong(rejectRows.get(i));
+                        writeString(out, rejectEntries.get(i));
+                    }
+                }
+                long[] lengths = new long[SECTIONS];
+                for (int i = 0; i < columnFiles.length; i++) lengths[i] = Files.size(columnFiles[i]);
+                lengths[SECTIONS - 1] = Files.size(strings);
+                long headerLength;
+                try (FileChannel target = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteArrayOutputStream header = new ByteArrayOutputStream();
+                    DataOutputStream out = new DataOutputStream(header);
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeLong(size);
+                    out.writeLong(modified);
+                    out.writeLong(crc);
+                    writeString(out, schemaKey);
+                    out.writeLong(rows);
+                    for (long length : lengths) out.writeLong(length);
+                    headerLength = header.size();
+                    target.write(ByteBuffer.wrap(header.toByteArray()));
+                    for (Path column : columnFiles) append(target, column);
+                    append(target, strings);
+                }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                committed = true;
+                if (LOGGER.isLoggable(Level.INFO)) {
+                    LOGGER.info(String.format("Wrote snapshot %s: %d rows, %d owners, %d contacts, %d bytes",
+                        path, rows, ownerNames.size(), contactNames.size(), Files.size(path)));
+                }
+                return new ParsedSnapshot(path, rows, headerLength, lengths);
+            } finally {
+                Files.deleteIfExists(strings);
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private static void append(FileChannel target, Path source) throws IOException {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                long position = 0;
+                long size = in.size();
+                while (position < size) {
+                    position += in.transferTo(position, size - position, target);
+                }
+            }
+        }
+
+        /**
+         * Removes the temporary column files; the snapshot itself is only kept if it was committed.
+         */
+        @Override
+        public void close() throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i] != null) {
+                    try {
+                        columns[i].close();
+                    } catch (IOException e) {
+                        // The column is discarded anyway
+                    }
+                }
+                if (columnFiles[i] != null) {
+                    Files.deleteIfExists(columnFiles[i]);
+                }
+            }
+            if (!committed && LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Snapshot " + path + " not written");
+            }
+        }
+    }
+}
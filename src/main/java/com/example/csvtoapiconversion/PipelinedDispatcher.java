@@ -0,0 +1,227 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.logging.*;
+
+/**
+ * Pipelined dispatch: overlaps CSV parsing with the Qualys requests instead of running them in
+ * strict phases.
+ * <p>
+ * The dispatcher listens to the owner and contact indexes while the CSV is parsed:
+ * <ul>
+ *   <li>With prefetching on, the group-ID lookup of a new owner or contact name starts on a small
+ *       thread pool as soon as the parser first sees the name, so lookup latency hides behind
+ *       parsing the rest of the file.</li>
+ *   <li>When the input is sorted by owner or by contact ({@code --sorted-by}), a group of that type
+ *       is complete as soon as a row with a different key has passed, and its operations (removal,
+ *       then addition) are handed to the dispatch thread right away.</li>
+ * </ul>
+ * All other groups are dispatched by {@link #complete} after parsing, in the usual order.
+ * Operations are executed one at a time, in submission order, on a single dispatch thread.
+ * <p>
+ * A group that was already dispatched is sent again by {@link #complete}, with all of its IPs, if
+ * more rows for it appear later (the input was not fully sorted) or if a group of the other type
+ * has the same name. Both edit the same Qualys group, and re-sending the complete removal and
+ * addition gives the same end result as a non-pipelined run.
+ */
+public class PipelinedDispatcher implements GroupIndex.Listener, AutoCloseable {
+
+    private final String sortedBy;
+    private final Function<GroupOperation, String> executor;
+    private final Logger logger;
+    private final ExecutorService lookupPool;
+    private final ExecutorService dispatchThread = Executors.newSingleThreadExecutor();
+    private final Map<String, CompletableFuture<String>> lookups = new ConcurrentHashMap<>();
+    private final List<DeadLetter> failures = Collections.synchronizedList(new ArrayList<>());
+
+    // Streaming state, only touched by the parsing thread
+    private GroupIndex sortedIndex;
+    private final BitSet dispatched = new BitSet();
+    private final BitSet updatedAfterDispatch = new BitSet();
+    private int current = -1;
+    private int submitted;
+    private int streamed;
+
+    // First exception thrown by an operation; later operations are parked instead of sent
+    private volatile RuntimeException error;
+
+    /**
+     * @param sortedBy        "owner" or "contact" if the input is sorted by that column, or null
+     * @param prefetchThreads Number of concurrent group-ID lookups while parsing; 0 disables prefetching
+     * @param executor        Executes one operation and returns null on success or the failure code
+     * @param logger          Logger for output
+     */
+    public PipelinedDispatcher(String sortedBy, int prefetchThreads,
+                               Function<GroupOperation, String> executor, Logger logger) {
+        if (sortedBy != null && !"owner".equals(sortedBy) && !"contact".equals(sortedBy)) {
+            throw new IllegalArgumentException("sorted-by must be 'owner' or 'contact'");
+        }
+        this.sortedBy = sortedBy;
+        this.executor = executor;
+        this.logger = logger;
+        this.lookupPool = prefetchThreads > 0 ? Executors.newFixedThreadPool(prefetchThreads) : null;
+    }
+
+    /**
+     * Starts the group-ID lookup of a newly seen group name.
+     */
+    @Override
+    public void newGroup(GroupIndex index, int id) {
+        if (lookupPool == null) return;
+        String name = index.name(id);
+        lookups.computeIfAbsent(lookupKey(index.getGroupType(), name), key -> CompletableFuture
+            .supplyAsync(() -> QualysApi.resolveGroupId(index.getGroupType(), name, logger), lookupPool)
+            .exceptionally(e -> null));
+    }
+
+    /**
+     * Dispatches the previous group of the sorted column once a row for a different group arrives.
+     */
+    @Override
+    public void groupUpdated(GroupIndex index, int id) {
+        if (!index.getGroupType().equals(sortedBy)) return;
+        sortedIndex = index;
+        if (dispatched.get(id)) {
+            updatedAfterDispatch.set(id);
+            return;
+        }
+        if (id != current) {
+            if (current >= 0) {
+                dispatched.set(current);
+                streamed++;
+                SyncPlan.groupOperations(index, current).forEach(this::submit);
+            }
+            current = id;
+        }
+    }
+
+    /**
+     * Dispatches the remaining operations after parsing and waits until every operation has run.
+     * Groups that were not dispatched while parsing, and dispatched groups that have to be sent
+     * again, go out in the usual order: removals before additions, owners before contacts.
+     *
+     * @param owners   Owner index
+     * @param contacts Contact index
+     * @throws QualysFatalErrorException if an operation hit a fatal Qualys error code
+     */
+    public void complete(GroupIndex owners, GroupIndex contacts) {
+        IntPredicate ownerFilter = id -> true;
+        IntPredicate contactFilter = id -> true;
+        if (sortedIndex != null) {
+            GroupIndex other = sortedIndex == owners ? contacts : owners;
+            IntPredicate sortedFilter = id -> !dispatched.get(id) || updatedAfterDispatch.get(id)
+                    || hasOperations(other, other.lookup(sortedIndex.name(id)));
+            if (sortedIndex == owners) {
+                ownerFilter = sortedFilter;
+            } else {
+                contactFilter = sortedFilter;
+            }
+            int resent = (int) dispatched.stream().filter(sortedFilter).count();
+            if (resent > 0) {
+                logger.warning(String.format("%d %s groups dispatched while parsing are sent again "
+                        + "(input not sorted by %s, or the same name is also a %s)",
+                        resent, sortedBy, sortedBy, other.getGroupType()));
+            }
+        }
+        SyncPlan.build(owners, contacts, null, ownerFilter, contactFilter).getOperations().forEach(this::submit);
+        close();
+
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info(String.format("Pipelined dispatch: %d group IDs prefetched, %d groups dispatched while parsing, %d operations",
+                lookups.size(), streamed, submitted));
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Stops accepting operations and waits for the submitted ones and any running lookups to finish.
+     */
+    @Override
+    public void close() {
+        dispatchThread.shutdown();
+        if (lookupPool != null) {
+            lookupPool.shutdown();
+        }
+        try {
+            dispatchThread.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            if (lookupPool != null) {
+                lookupPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of operations submitted for dispatch
+     */
+    public int getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return the operations that failed, or were not sent because an earlier operation hit a fatal error
+     */
+    public List<DeadLetter> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    private static boolean hasOperations(GroupIndex index, int id) {
+        return id >= 0 && (index.getActiveIps(id) != null || index.getDeactivatedIps(id) != null);
+    }
+
+    /**
+     * Owner and contact groups with the same name share one lookup, unless they are routed to different platforms.
+     */
+    private static String lookupKey(String groupType, String groupName) {
+        return QualysApi.getRouter().route(groupType, groupName).getName() + '\0' + groupName;
+    }
+
+    /**
+     * Queues an operation on the dispatch thread together with the prefetched lookup of its group.
+     */
+    private void submit(GroupOperation op) {
+        CompletableFuture<String> lookup = lookups.get(lookupKey(op.getGroupType(), op.getGroupName()));
+        submitted++;
+        dispatchThread.execute(() -> run(op, lookup));
+    }
+
+    /**
+     * Runs one operation on the dispatch thread, using the prefetched group ID when it was found.
+     * A group that was not found is looked up again by the executor.
+     */
+    private void run(GroupOperation op, CompletableFuture<String> lookup) {
+        RuntimeException earlier = error;
+        if (earlier != null) {
+            String errorCode = earlier instanceof QualysFatalErrorException fatal ? fatal.getErrorCode() : "REQUEST_FAILED";
+            failures.add(new DeadLetter(op, errorCode, 0));
+            return;
+        }
+        GroupOperation resolved = op;
+        if (lookup != null && op.getGroupId() == null) {
+            String groupId = lookup.join();
+            if (groupId != null) {
+                resolved = op.withGroupId(groupId);
+            }
+        }
+        try {
+            String errorCode = executor.apply(resolved);
+            if (errorCode != null) {
+                failures.add(new DeadLetter(resolved, errorCode, 1));
+            }
+        } catch (QualysFatalErrorException e) {
+            failures.add(new DeadLetter(resolved, e.getErrorCode(), 1));
+            error = e;
+        } catch (RuntimeException e) {
+            logger.severe("Operation failed: " + resolved + ": " + e.getMessage());
+            failures.add(new DeadLetter(resolved, "REQUEST_FAILED", 1));
+            error = e;
+        }
+    }
+}
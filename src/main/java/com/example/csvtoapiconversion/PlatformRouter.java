@@ -0,0 +1,170 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.regex.*;
+
+/**
+ * Routes owner and contact groups to the Qualys platform (subscription) that holds them.
+ * <p>
+ * Routes are loaded from a properties file:
+ * <pre>
+ *   platforms=us1,eu1
+ *   default=us1
+ *   us1.url=https://qualysapi.qualys.com
+ *   us1.username=api_user_us
+ *   us1.password-env=QUALYS_US1_PASSWORD
+ *   us1.concurrency=4
+ *   us1.requests-per-second=2
+ *   eu1.adaptive-concurrency=1-8
+ *   eu1.url=https://qualysapi.qualys.eu
+ *   eu1.username=api_user_eu
+ *   eu1.password=secret
+ *   route.1=eu1 owner EMEA-.*
+ *   route.2=eu1 * .*\.de
+ * </pre>
+ * Each route is {@code <platform> <owner|contact|*> <regex>}; the regex must match the whole group
+ * name. Routes are tried in the order of their numbers, and groups that match no route go to the
+ * default platform. {@code password-env} reads the password from an environment variable instead
+ * of the file. {@code concurrency} defaults to the --concurrency of the run and
+ * {@code requests-per-second} to no limit. {@code adaptive-concurrency=MIN-MAX} replaces the fixed
+ * cap with one that adapts to the platform's latency within those bounds (see {@link AdaptiveLimiter}).
+ */
+public class PlatformRouter {
+
+    private final List<QualysPlatform> platforms;
+    private final QualysPlatform defaultPlatform;
+    private final List<Route> routes;
+    private final Map<String, QualysPlatform> routed = new ConcurrentHashMap<>();
+
+    private record Route(QualysPlatform platform, String groupType, Pattern pattern) {
+    }
+
+    private PlatformRouter(List<QualysPlatform> platforms, QualysPlatform defaultPlatform, List<Route> routes) {
+        this.platforms = List.copyOf(platforms);
+        this.defaultPlatform = defaultPlatform;
+        this.routes = List.copyOf(routes);
+    }
+
+    /**
+     * @param platform the only platform
+     * @return a router that sends every group to one platform
+     */
+    public static PlatformRouter single(QualysPlatform platform) {
+        return new PlatformRouter(List.of(platform), platform, List.of());
+    }
+
+    /**
+     * Loads platforms and routes from a properties file.
+     *
+     * @param path               Properties file
+     * @param circuitBreakers    Creates the circuit breaker of each platform
+     * @param defaultConcurrency Concurrency cap of platforms that do not set one
+     * @return the router
+     * @throws IOException if the file cannot be read or is invalid
+     */
+    public static PlatformRouter load(Path path, Supplier<CircuitBreaker> circuitBreakers, int defaultConcurrency) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(path)) {
+            props.load(in);
+        }
+
+        Map<String, QualysPlatform> byName = new LinkedHashMap<>();
+        for (String name : props.getProperty("platforms", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            String url = props.getProperty(name + ".url");
+            if (url == null) {
+                throw new IOException(path + ": platform " + name + " has no " + name + ".url");
+            }
+            String passwordEnv = props.getProperty(name + ".password-env");
+            String password = passwordEnv != null ? System.getenv(passwordEnv) : props.getProperty(name + ".password", "");
+            if (password == null) {
+                throw new IOException(path + ": environment variable " + passwordEnv + " for platform " + name + " is not set");
+            }
+            try {
+                QualysPlatform platform = new QualysPlatform(name, url, props.getProperty(name + ".username", ""), password,
+                    Integer.parseInt(props.getProperty(name + ".concurrency", String.valueOf(defaultConcurrency))),
+                    Double.parseDouble(props.getProperty(name + ".requests-per-second", "0")),
+                    circuitBreakers.get());
+                String adaptive = props.getProperty(name + ".adaptive-concurrency");
+                if (adaptive != null) {
+                    platform.setAdaptiveLimiter(AdaptiveLimiter.parse(name, adaptive));
+                }
+                byName.put(name, platform);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": invalid limits for platform " + name + ": " + e.getMessage(), e);
+            }
+        }
+        if (byName.isEmpty()) {
+            throw new IOException(path + ": no platforms defined");
+        }
+        String defaultName = props.getProperty("default", byName.keySet().iterator().next()).trim();
+        QualysPlatform defaultPlatform = platform(byName, defaultName, path);
+
+        SortedMap<Integer, String> routeLines = new TreeMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("route.")) {
+                try {
+                    routeLines.put(Integer.parseInt(key.substring("route.".length())), props.getProperty(key).trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException(path + ": route key must be route.<number>: " + key);
+                }
+            }
+        }
+        List<Route> routes = new ArrayList<>();
+        for (Map.Entry<Integer, String> line : routeLines.entrySet()) {
+            String[] parts = line.getValue().split("\\s+", 3);
+            if (parts.length < 3 || !Set.of("owner", "contact", "*").contains(parts[1])) {
+                throw new IOException(path + ": route." + line.getKey() + " must be '<platform> <owner|contact|*> <regex>'");
+            }
+            try {
+                routes.add(new Route(platform(byName, parts[0], path), "*".equals(parts[1]) ? null : parts[1], Pattern.compile(parts[2])));
+            } catch (PatternSyntaxException e) {
+                throw new IOException(path + ": route." + line.getKey() + " has an invalid regex: " + e.getMessage(), e);
+            }
+        }
+        return new PlatformRouter(new ArrayList<>(byName.values()), defaultPlatform, routes);
+    }
+
+    private static QualysPlatform platform(Map<String, QualysPlatform> byName, String name, Path path) throws IOException {
+        QualysPlatform platform = byName.get(name);
+        if (platform == null) {
+            throw new IOException(path + ": unknown platform " + name);
+        }
+        return platform;
+    }
+
+    /**
+     * @param groupType "owner" or "contact" (null matches only routes for both)
+     * @param groupName asset group name
+     * @return the platform that holds the group
+     */
+    public QualysPlatform route(String groupType, String groupName) {
+        if (routes.isEmpty()) {
+            return defaultPlatform;
+        }
+        return routed.computeIfAbsent(groupType + "\0" + groupName, key -> {
+            for (Route route : routes) {
+                if ((route.groupType == null || route.groupType.equals(groupType)) && route.pattern.matcher(groupName).matches()) {
+                    return route.platform;
+                }
+            }
+            return defaultPlatform;
+        });
+    }
+
+    /**
+     * @return all platforms, in the order they were defined
+     */
+    public List<QualysPlatform> getPlatforms() {
+        return platforms;
+    }
+
+    public QualysPlatform getDefaultPlatform() {
+        return defaultPlatform;
+    }
+}
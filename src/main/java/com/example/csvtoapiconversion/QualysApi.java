@@ -7,13 +7,63 @@ import java.util.logging.*;
 
 /**
  * Utility class for making Qualys API calls to add or remove IPs from asset groups.
- * Handles error code parsing and fatal error handling.
+ * Handles error code parsing and fatal error handling, and caches resolved group IDs
+ * so that a long-running process only looks each group up once.
+ * <p>
+ * Each group is routed to the Qualys platform that holds it (see {@link PlatformRouter}); every
+ * request uses that platform's endpoint, credentials, circuit breaker and limits. Without a
+ * routing configuration all groups go to a single default platform.
+ * <p>
+ * Connections are not disconnected: every response is read to the end and closed instead, so the
+ * JDK keeps the connection alive and reuses it for the next request to the same host.
  */
 public class QualysApi {
 
+    // Connection and read timeouts, so that an unresponsive endpoint fails instead of hanging the run
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 120_000;
+
+    // Group IDs per list request, keeping the request URL short
+    private static final int LIST_BATCH_SIZE = 100;
+
+    // Resolved group IDs are reused for this long before being looked up again
+    private static final long GROUP_ID_TTL_NANOS = 60L * 60 * 1_000_000_000L;
+
+    // Platform used when no routing is configured
+    private static final QualysPlatform DEFAULT_PLATFORM = new QualysPlatform("default", "https://qualysapi.qualys.com",
+        "YOUR_QUALYS_USERNAME", "YOUR_QUALYS_PASSWORD", 0, 0, new CircuitBreaker());
+
+    // Routes each group to its platform
+    private static volatile PlatformRouter router = PlatformRouter.single(DEFAULT_PLATFORM);
+
+    /**
+     * Replaces the circuit breaker of the default platform.
+     *
+     * @param breaker the circuit breaker to use
+     */
+    public static void setCircuitBreaker(CircuitBreaker breaker) {
+        router.getDefaultPlatform().setCircuitBreaker(breaker);
+    }
+
+    /**
+     * Replaces the routing of groups to Qualys platforms.
+     *
+     * @param platformRouter the router to use
+     */
+    public static void setRouter(PlatformRouter platformRouter) {
+        router = platformRouter;
+    }
+
+    /**
+     * @return the routing of groups to Qualys platforms
+     */
+    public static PlatformRouter getRouter() {
+        return router;
+    }
+
     /**
      * Makes an API call to add or remove IPs from a Qualys asset group.
-     * Exits the application if a fatal error code is returned.
+     * Throws {@link QualysFatalErrorException} if a fatal error code is returned.
      *
      * @param action        "add" or "remove"
      * @param groupName     Name of the Qualys asset group
@@ -28,6 +78,26 @@ public class QualysApi {
             List<String> errorRecords,
             Logger logger
     ) {
+        makeApiCall(new GroupOperation(null, groupName, null, action, ips), errorRecords, logger);
+    }
+
+    /**
+     * Executes a group operation against Qualys. If the operation already carries a group ID
+     * (for example from a plan file) the group lookup is skipped.
+     * Throws {@link QualysFatalErrorException} if a fatal error code is returned.
+     *
+     * @param operation     The group operation to execute
+     * @param errorRecords  List to collect error records
+     * @param logger        Logger for output
+     * @return null if the operation succeeded, otherwise the failure code: GROUP_NOT_FOUND,
+     *         CIRCUIT_OPEN (request rejected by the circuit breaker), REQUEST_FAILED (error status or no response)
+     *         or the recognized Qualys error code
+     */
+    public static String makeApiCall(GroupOperation operation, List<String> errorRecords, Logger logger) {
+        String action = operation.getAction();
+        String groupName = operation.getGroupName();
+        String[] ips = operation.getIps();
+
         // Validate action
         if (!"add".equals(action) && !"remove".equals(action)) {
             String msg = "action must be 'add' or 'remove'";
@@ -35,61 +105,174 @@ public class QualysApi {
             throw new IllegalArgumentException(msg);
         }
 
-        // Lookup Qualys asset group ID by groupName
-        String groupId = lookupQualysGroupId(groupName, logger);
+        QualysPlatform platform = router.route(operation.getGroupType(), groupName);
+
+        // Lookup Qualys asset group ID by groupName, unless already resolved
+        Reply lookup = operation.getGroupId() != null ? new Reply(operation.getGroupId(), null) : resolve(platform, groupName, logger);
+        if (lookup.failure() == Reply.CIRCUIT_OPEN) {
+            return circuitOpen(groupName, errorRecords, logger);
+        }
+        if (lookup.failure() == Reply.REQUEST_FAILED) {
+            // Qualys did not answer the lookup, which says nothing about whether the group exists
+            errorRecords.add("REQUEST_FAILED:" + groupName);
+            logger.warning("Request failed looking up asset group " + groupName);
+            return "REQUEST_FAILED";
+        }
+        String groupId = lookup.value();
         if (groupId == null) {
             String msg = "Asset group not found for groupName: " + groupName;
             errorRecords.add("GROUP_NOT_FOUND:" + groupName);
             logger.warning(msg);
-            return;
+            return "GROUP_NOT_FOUND";
         }
 
         // Edit the asset group to add or remove IPs
-        String editResponse = editQualysAssetGroup(groupId, action, ips, logger);
+        Reply edit = edit(platform, groupName, groupId, action, ips, logger);
+        String editResponse = edit.value();
 
         // Parse the edit response for error codes and add only recognized codes
         if (editResponse != null) {
             String errorCode = QualysApiErrors.extractQualysFoApiErrorCode(editResponse);
             String errorDesc = QualysApiErrors.getDescriptionByCode(errorCode);
 
-            // If the error code is one of the specified, exit the application
+            // If the error code is one of the specified, stop processing
             Set<String> fatalCodes = Set.of(
                 "1920", "1960", "1965", "1981",
                 "999", "1999", "2000", "2002", "2003", "2011", "2012"
             );
             if (errorCode != null && fatalCodes.contains(errorCode)) {
-                String msg = String.format(
-                    "Fatal Qualys API error code %s (%s) received. Exiting application.",
-                    errorCode, errorDesc
-                );
-                logger.severe(msg);
-                System.err.println(msg);
-                System.exit(1);
+                QualysFatalErrorException fatal = new QualysFatalErrorException(errorCode, errorDesc);
+                logger.severe(fatal.getMessage());
+                throw fatal;
             }
 
             if (errorCode != null && !"Unknown error code".equals(errorDesc)) {
                 String msg = errorCode + ": " + errorDesc;
                 errorRecords.add(msg);
                 logger.warning(msg);
+                return errorCode;
             }
         }
+        if (edit.failure() == null) {
+            return null;
+        }
+        if (edit.failure() == Reply.CIRCUIT_OPEN) {
+            return circuitOpen(groupName, errorRecords, logger);
+        }
+        String msg = "Request failed editing asset group " + groupId + " (" + groupName + ")";
+        errorRecords.add("REQUEST_FAILED:" + groupName);
+        logger.warning(msg);
+        return "REQUEST_FAILED";
+    }
+
+    /**
+     * Outcome of a Qualys request.
+     *
+     * @param value   the group ID found by a lookup or the response body of an edit, or null if there is none
+     * @param failure null if Qualys answered with a 2xx status, {@link #CIRCUIT_OPEN} if the circuit
+     *                breaker rejected the request, {@link #REQUEST_FAILED} for an error status or no response
+     */
+    record Reply(String value, String failure) {
+        static final String CIRCUIT_OPEN = "CIRCUIT_OPEN";
+        static final String REQUEST_FAILED = "REQUEST_FAILED";
+
+        static final Reply REJECTED = new Reply(null, CIRCUIT_OPEN);
+        static final Reply NO_RESPONSE = new Reply(null, REQUEST_FAILED);
+    }
+
+    /**
+     * Records an operation that was not sent (or not completed) because the circuit breaker is open.
+     */
+    private static String circuitOpen(String groupName, List<String> errorRecords, Logger logger) {
+        errorRecords.add("CIRCUIT_OPEN:" + groupName);
+        logger.warning("Qualys circuit breaker is open; operation for group " + groupName + " not completed");
+        return "CIRCUIT_OPEN";
+    }
+
+    /**
+     * Resolves the Qualys asset group ID for a group name, on the platform of routes that apply
+     * to both owner and contact groups.
+     *
+     * @param groupName The name of the asset group (owner or contact value)
+     * @param logger Logger for output
+     * @return The Qualys asset group ID, or null if not found
+     */
+    public static String resolveGroupId(String groupName, Logger logger) {
+        return resolveGroupId(router.route(null, groupName), groupName, logger);
+    }
+
+    /**
+     * Resolves the Qualys asset group ID for a group name, on the platform the group is routed to.
+     *
+     * @param groupType "owner" or "contact"
+     * @param groupName The name of the asset group (owner or contact value)
+     * @param logger Logger for output
+     * @return The Qualys asset group ID, or null if not found
+     */
+    public static String resolveGroupId(String groupType, String groupName, Logger logger) {
+        return resolveGroupId(router.route(groupType, groupName), groupName, logger);
+    }
+
+    /**
+     * Like {@link #resolveGroupId(String, String, Logger)}, but tells a group that does not exist
+     * (no value and no failure) from a lookup Qualys did not answer.
+     *
+     * @return The lookup's outcome, with the group ID as its value
+     */
+    static Reply resolveGroup(String groupType, String groupName, Logger logger) {
+        return resolve(router.route(groupType, groupName), groupName, logger);
+    }
+
+    private static String resolveGroupId(QualysPlatform platform, String groupName, Logger logger) {
+        return resolve(platform, groupName, logger).value();
+    }
+
+    private static Reply resolve(QualysPlatform platform, String groupName, Logger logger) {
+        String cached = platform.cachedGroupId(groupName, GROUP_ID_TTL_NANOS);
+        if (cached != null) {
+            return new Reply(cached, null);
+        }
+        Reply lookup = lookup(platform, groupName, logger);
+        // Only found groups are cached, so a group created later is picked up on the next lookup
+        if (lookup.value() != null) {
+            platform.cacheGroupId(groupName, lookup.value());
+        }
+        return lookup;
+    }
+
+    /**
+     * Edits a Qualys asset group on the default platform.
+     *
+     * @see #editQualysAssetGroup(QualysPlatform, String, String, String, String[], Logger)
+     */
+    private static String editQualysAssetGroup(String groupId, String action, String[] ips, Logger logger) {
+        return editQualysAssetGroup(router.getDefaultPlatform(), null, groupId, action, ips, logger);
     }
 
     /**
      * Edits the Qualys asset group by ID to add or remove IPs using the fo/asset/group API.
      * Returns the raw API response as a string.
-     * Logs request and response details on error.
+     * Logs request and response details on error, and reports the call as a {@link GroupEditEvent}.
      *
+     * @param platform The platform that holds the group
+     * @param groupName The name of the asset group, for the flight recorder event (may be null)
      * @param groupId The Qualys asset group ID
      * @param action "add" or "remove"
      * @param ips Array of IP addresses to add or remove
      * @param logger Logger for output
-     * @return The raw API response as a string
+     * @return The raw API response as a string, or null if there was none
      */
-    private static String editQualysAssetGroup(String groupId, String action, String[] ips, Logger logger) {
-        String apiUrl = "https://qualysapi.qualys.com/api/2.0/fo/asset/group/";
-        String username = "YOUR_QUALYS_USERNAME";
-        String password = "YOUR_QUALYS_PASSWORD";
+    private static String editQualysAssetGroup(QualysPlatform platform, String groupName, String groupId, String action, String[] ips, Logger logger) {
+        return edit(platform, groupName, groupId, action, ips, logger).value();
+    }
+
+    /**
+     * {@link #editQualysAssetGroup(QualysPlatform, String, String, String, String[], Logger)}, telling
+     * a request rejected by the circuit breaker apart from a failed one.
+     */
+    private static Reply edit(QualysPlatform platform, String groupName, String groupId, String action, String[] ips, Logger logger) {
+        String apiUrl = platform.getAssetGroupUrl();
+        CircuitBreaker circuitBreaker = platform.getCircuitBreaker();
 
         // Build comma-separated IP list
         StringBuilder ipList = new StringBuilder();
@@ -108,14 +291,27 @@ public class QualysApi {
                     "&remove_ips=" + URLEncoder.encode(ipList.toString(), java.nio.charset.StandardCharsets.UTF_8);
         }
 
+        if (!circuitBreaker.tryAcquirePermission()) {
+            logger.fine("Circuit breaker open; not editing asset group " + groupId);
+            return Reply.REJECTED;
+        }
+
+        GroupEditEvent event = new GroupEditEvent();
+        event.begin();
         HttpURLConnection conn = null;
+        boolean overloaded = true;
+        boolean answered = false;
+        long queuedAt = System.nanoTime();
+        long startedAt = platform.acquire();
+        event.queueTime = startedAt - queuedAt;
         try {
             URI uri = URI.create(apiUrl);
             URL url = uri.toURL();
             conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(READ_TIMEOUT_MILLIS);
             conn.setRequestMethod("POST");
-            String basicAuth = java.util.Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
-            conn.setRequestProperty("Authorization", "Basic " + basicAuth);
+            conn.setRequestProperty("Authorization", platform.getAuthorization());
             conn.setRequestProperty("X-Requested-With", "Java");
             conn.setDoOutput(true);
 
@@ -125,16 +321,25 @@ public class QualysApi {
             }
 
             int responseCode = conn.getResponseCode();
-            String response = new String(conn.getInputStream().readAllBytes());
-            conn.disconnect();
+            overloaded = isOverloaded(responseCode);
+            recordOutcome(circuitBreaker, responseCode);
+            answered = true;
+            event.httpStatus = responseCode;
+            String response = readBody(conn, responseCode);
+            if (event.isEnabled()) {
+                event.qualysCode = QualysApiErrors.extractQualysFoApiErrorCode(response);
+            }
 
             if (responseCode != 200) {
                 System.err.println("Failed to update asset group " + groupId + ". HTTP code: " + responseCode);
-            } else {
-                System.out.println("Asset group " + groupId + " updated. Response: " + response);
+                return new Reply(response, Reply.REQUEST_FAILED);
             }
-            return response;
+            System.out.println("Asset group " + groupId + " updated. Response: " + response);
+            return new Reply(response, null);
         } catch (IOException e) {
+            if (!answered) {
+                circuitBreaker.onFailure();
+            }
             // Log the full request and any available response
             logger.severe("IOException during editQualysAssetGroup: " + e.getMessage());
             logger.severe("Request URL: " + apiUrl);
@@ -155,53 +360,100 @@ public class QualysApi {
                     logger.severe("Unable to read response: " + ex.getMessage());
                 }
             }
-            return null;
+            return Reply.NO_RESPONSE;
+        } finally {
+            platform.release(startedAt, overloaded);
+            if (event.shouldCommit()) {
+                event.platform = platform.getName();
+                event.groupName = groupName;
+                event.groupId = groupId;
+                event.action = action;
+                event.ipCount = ips.length;
+                event.commit();
+            }
         }
     }
 
+    /**
+     * Looks up a Qualys asset group ID on the default platform.
+     *
+     * @see #lookupQualysGroupId(QualysPlatform, String, Logger)
+     */
+    private static String lookupQualysGroupId(String groupName, Logger logger) {
+        return lookupQualysGroupId(router.getDefaultPlatform(), groupName, logger);
+    }
+
     /**
      * Looks up the Qualys asset group ID for the given group name using the fo/asset/group API.
      * Returns the group ID as a string, or null if not found.
-     * Logs request and response details on error.
+     * Logs request and response details on error, and reports the call as a {@link GroupLookupEvent}.
      *
+     * @param platform The platform to look the group up on
      * @param groupName The name of the asset group (owner or contact value)
      * @param logger Logger for output
      * @return The Qualys asset group ID as a String, or null if not found
      */
-    private static String lookupQualysGroupId(String groupName, Logger logger) {
-        String apiUrl = "https://qualysapi.qualys.com/api/2.0/fo/asset/group/";
-        String username = "YOUR_QUALYS_USERNAME";
-        String password = "YOUR_QUALYS_PASSWORD";
+    private static String lookupQualysGroupId(QualysPlatform platform, String groupName, Logger logger) {
+        return lookup(platform, groupName, logger).value();
+    }
+
+    /**
+     * {@link #lookupQualysGroupId(QualysPlatform, String, Logger)}, telling a request rejected by the
+     * circuit breaker apart from a group that was not found.
+     */
+    private static Reply lookup(QualysPlatform platform, String groupName, Logger logger) {
+        String apiUrl = platform.getAssetGroupUrl();
+        CircuitBreaker circuitBreaker = platform.getCircuitBreaker();
         String params = "action=list&title=" + URLEncoder.encode(groupName, java.nio.charset.StandardCharsets.UTF_8);
 
+        if (!circuitBreaker.tryAcquirePermission()) {
+            logger.fine("Circuit breaker open; not looking up group ID for " + groupName);
+            return Reply.REJECTED;
+        }
+
+        GroupLookupEvent event = new GroupLookupEvent();
+        event.begin();
         HttpURLConnection conn = null;
+        boolean overloaded = true;
+        boolean answered = false;
+        long queuedAt = System.nanoTime();
+        long startedAt = platform.acquire();
+        event.queueTime = startedAt - queuedAt;
         try {
             URI uri = URI.create(apiUrl + "?" + params);
             URL url = uri.toURL();
             conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(READ_TIMEOUT_MILLIS);
             conn.setRequestMethod("GET");
-            String basicAuth = java.util.Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
-            conn.setRequestProperty("Authorization", "Basic " + basicAuth);
+            conn.setRequestProperty("Authorization", platform.getAuthorization());
             conn.setRequestProperty("X-Requested-With", "Java");
 
             int responseCode = conn.getResponseCode();
-            String response = new String(conn.getInputStream().readAllBytes());
-            conn.disconnect();
+            overloaded = isOverloaded(responseCode);
+            recordOutcome(circuitBreaker, responseCode);
+            answered = true;
+            event.httpStatus = responseCode;
+            String response = readBody(conn, responseCode);
 
             System.err.println("Response body:\n" + response);
             if (responseCode != 200) {
                 System.err.println("Failed to look up group ID for " + groupName + ". HTTP code: " + responseCode);
-                return null;
+                return Reply.NO_RESPONSE;
             }
 
             // Simple extraction (for demo; use proper XML parser in production)
             String idTag = "<ID>";
             int idStart = response.indexOf(idTag);
-            if (idStart == -1) return null;
+            if (idStart == -1) return new Reply(null, null);
             int idEnd = response.indexOf("</ID>", idStart);
-            if (idEnd == -1) return null;
-            return response.substring(idStart + idTag.length(), idEnd).trim();
+            if (idEnd == -1) return new Reply(null, null);
+            event.groupId = response.substring(idStart + idTag.length(), idEnd).trim();
+            return new Reply(event.groupId, null);
         } catch (IOException e) {
+            if (!answered) {
+                circuitBreaker.onFailure();
+            }
             // Log the full request and any available response
             logger.severe("IOException during lookupQualysGroupId for group '" + groupName + "': " + e.getMessage());
             logger.severe("Request URL: " + apiUrl + "?" + params);
@@ -221,7 +473,198 @@ public class QualysApi {
                     logger.severe("Unable to read response: " + ex.getMessage());
                 }
             }
+            return Reply.NO_RESPONSE;
+        } finally {
+            platform.release(startedAt, overloaded);
+            if (event.shouldCommit()) {
+                event.platform = platform.getName();
+                event.groupName = groupName;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Lists the current IP membership of asset groups on the default platform.
+     *
+     * @see #listGroupMembership(QualysPlatform, Collection, int, Logger)
+     */
+    public static Map<String, GroupMembership> listGroupMembership(Collection<String> groupIds, int pageSize, Logger logger) {
+        return listGroupMembership(router.getDefaultPlatform(), groupIds, pageSize, logger);
+    }
+
+    /**
+     * Lists the current IP membership of the given asset groups using paged fo/asset/group list
+     * requests. Groups are requested in batches of {@value #LIST_BATCH_SIZE} IDs, and each batch is
+     * paged with {@code truncation_limit}, following the next-page URL Qualys returns in its
+     * truncation warning. Responses are parsed as a stream, without buffering whole pages.
+     * <p>
+     * A group is only part of the result once its complete IP set has been read, so a failed
+     * request never yields a partial membership.
+     *
+     * @param platform The platform that holds the groups
+     * @param groupIds Qualys asset group IDs
+     * @param pageSize Maximum number of groups per response page
+     * @param logger   Logger for output
+     * @return group ID → current membership, for every group that could be listed
+     */
+    public static Map<String, GroupMembership> listGroupMembership(QualysPlatform platform, Collection<String> groupIds, int pageSize, Logger logger) {
+        String apiUrl = platform.getAssetGroupUrl();
+        Map<String, GroupMembership> memberships = new HashMap<>();
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(groupIds));
+        for (int from = 0; from < ids.size(); from += LIST_BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(from + LIST_BATCH_SIZE, ids.size()));
+            String url = apiUrl + "?action=list&show_attributes=ID,IP_SET"
+                    + "&truncation_limit=" + pageSize
+                    + "&ids=" + URLEncoder.encode(String.join(",", batch), java.nio.charset.StandardCharsets.UTF_8);
+            int pages = 0;
+            while (url != null) {
+                url = listAssetGroupPage(platform, url, memberships, logger);
+                pages++;
+            }
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(String.format("Listed membership of %d asset groups in %d pages", batch.size(), pages));
+            }
+        }
+        return memberships;
+    }
+
+    /**
+     * Requests one page of the asset group list and adds the groups on it to the map.
+     *
+     * @return the URL of the next page, or null if this was the last page or the request failed
+     */
+    private static String listAssetGroupPage(QualysPlatform platform, String url, Map<String, GroupMembership> memberships, Logger logger) {
+        CircuitBreaker circuitBreaker = platform.getCircuitBreaker();
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            logger.fine("Circuit breaker open; not listing asset groups");
             return null;
         }
+
+        HttpURLConnection conn = null;
+        boolean overloaded = true;
+        long startedAt = platform.acquire();
+        try {
+            conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+            conn.setRequestMethod("GET");
+            conn.setRequestProperty("Authorization", platform.getAuthorization());
+            conn.setRequestProperty("X-Requested-With", "Java");
+
+            int responseCode = conn.getResponseCode();
+            overloaded = isOverloaded(responseCode);
+            recordOutcome(circuitBreaker, responseCode);
+            if (responseCode != 200) {
+                logger.warning("Failed to list asset groups. HTTP code: " + responseCode + ", URL: " + url);
+                readBody(conn, responseCode);
+                return null;
+            }
+            try (InputStream is = conn.getInputStream()) {
+                String nextUrl = parseAssetGroupList(is, memberships);
+                // Anything after the document, so the connection can be reused
+                is.transferTo(OutputStream.nullOutputStream());
+                return nextUrl;
+            }
+        } catch (IOException e) {
+            circuitBreaker.onFailure();
+            logger.severe("IOException while listing asset groups: " + e.getMessage());
+            logger.severe("Request URL: " + url);
+            return null;
+        } finally {
+            platform.release(startedAt, overloaded);
+        }
+    }
+
+    /**
+     * Parses an asset group list response with a streaming (StAX) parser. Each complete
+     * ASSET_GROUP element adds the group's ID and IP set (IP and IP_RANGE entries) to the map.
+     *
+     * @param in          the response body
+     * @param memberships Output: group ID → membership
+     * @return the next-page URL from the truncation warning, or null if the list is complete
+     * @throws IOException if the response is not well-formed XML
+     */
+    static String parseAssetGroupList(InputStream in, Map<String, GroupMembership> memberships) throws IOException {
+        javax.xml.stream.XMLInputFactory factory = javax.xml.stream.XMLInputFactory.newFactory();
+        factory.setProperty(javax.xml.stream.XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(javax.xml.stream.XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        String nextUrl = null;
+        try {
+            javax.xml.stream.XMLStreamReader reader = factory.createXMLStreamReader(in);
+            Deque<String> path = new ArrayDeque<>();
+            String groupId = null;
+            GroupMembership group = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == javax.xml.stream.XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    String parent = path.peek();
+                    path.push(name);
+                    if ("ASSET_GROUP".equals(name)) {
+                        groupId = null;
+                        group = new GroupMembership();
+                    } else if (group != null && "ID".equals(name) && "ASSET_GROUP".equals(parent)) {
+                        groupId = reader.getElementText().trim();
+                        path.pop();
+                    } else if (group != null && "IP_SET".equals(parent)) {
+                        // IP, IP_RANGE and their IPv6 counterparts
+                        group.add(reader.getElementText().trim());
+                        path.pop();
+                    } else if ("URL".equals(name) && "WARNING".equals(parent)) {
+                        nextUrl = reader.getElementText().trim();
+                        path.pop();
+                    }
+                } else if (event == javax.xml.stream.XMLStreamConstants.END_ELEMENT) {
+                    path.pop();
+                    if ("ASSET_GROUP".equals(reader.getLocalName()) && group != null) {
+                        if (groupId != null) {
+                            memberships.put(groupId, group);
+                        }
+                        group = null;
+                    }
+                }
+            }
+            reader.close();
+        } catch (javax.xml.stream.XMLStreamException e) {
+            throw new IOException("Malformed asset group list response: " + e.getMessage(), e);
+        }
+        return nextUrl == null || nextUrl.isEmpty() ? null : nextUrl;
+    }
+
+    /**
+     * Reads the response body: the input stream for a 2xx status, otherwise the error stream,
+     * which is absent if the error response has no body. The body is read to the end and closed,
+     * which returns the connection to the JDK's keep-alive cache for the next request to the host.
+     */
+    private static String readBody(HttpURLConnection conn, int responseCode) throws IOException {
+        InputStream in = responseCode / 100 == 2 ? conn.getInputStream() : conn.getErrorStream();
+        if (in == null) {
+            return "";
+        }
+        try (in) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Reports the outcome of a completed request to the platform's circuit breaker.
+     * Server errors and throttling responses count as failures.
+     */
+    private static void recordOutcome(CircuitBreaker circuitBreaker, int responseCode) {
+        if (responseCode >= 500 || responseCode == 429) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    /**
+     * @return true if the response shows the platform is overloaded, for the adaptive limiter:
+     * server errors, throttling (429) and the Qualys concurrency limit response (409)
+     */
+    static boolean isOverloaded(int responseCode) {
+        return responseCode >= 500 || responseCode == 429 || responseCode == 409;
     }
-}
\ No newline at end of file
+}
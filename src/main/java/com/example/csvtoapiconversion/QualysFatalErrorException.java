@@ -0,0 +1,25 @@
+package com.example.csvtoapiconversion;
+
+/**
+ * Thrown when Qualys returns one of the fatal error codes (authentication, licensing,
+ * maintenance or blocking limits) after which no further request can succeed.
+ * The command-line application exits on it; the service mode fails only the current job.
+ */
+public class QualysFatalErrorException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String errorCode;
+
+    /**
+     * @param errorCode   The Qualys error code
+     * @param description The description of the error code
+     */
+    public QualysFatalErrorException(String errorCode, String description) {
+        super(String.format("Fatal Qualys API error code %s (%s) received.", errorCode, description));
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
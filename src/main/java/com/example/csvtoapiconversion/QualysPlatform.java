@@ -0,0 +1,182 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * One Qualys subscription: the platform endpoint and credentials, together with everything that
+ * is limited per subscription. Each platform has its own circuit breaker, its own cap on requests
+ * in flight, its own request rate budget and its own group-ID cache, so a slow or failing platform
+ * does not hold back the others. The cap is either fixed or adapted to the platform's latency and
+ * throttling by an {@link AdaptiveLimiter}.
+ * <p>
+ * {@link QualysApi} reads every response to the end, so the JDK keeps HTTP connections alive and
+ * reuses them per host; platforms on different hosts never share connections. The JDK keeps at
+ * most {@code http.maxConnections} (default 5) idle connections per host.
+ */
+public class QualysPlatform {
+
+    private final String name;
+    private final String baseUrl;
+    private final String username;
+    private final String password;
+    private final int concurrency;
+    private final Semaphore inFlight;
+    private final long intervalNanos;
+    private final Map<String, CachedGroupId> groupIds = new ConcurrentHashMap<>();
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile AdaptiveLimiter adaptiveLimiter;
+    private long nextRequestAt;
+
+    /**
+     * @param name              Platform name used in routing rules and logs
+     * @param baseUrl           API server URL, e.g. https://qualysapi.qualys.com
+     * @param username          API user
+     * @param password          API password
+     * @param concurrency       Maximum number of requests in flight; 0 for no limit
+     * @param requestsPerSecond Maximum request rate; 0 for no limit
+     * @param circuitBreaker    Circuit breaker for this platform's requests
+     */
+    public QualysPlatform(String name, String baseUrl, String username, String password,
+                          int concurrency, double requestsPerSecond, CircuitBreaker circuitBreaker) {
+        if (concurrency < 0 || requestsPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid limits for Qualys platform " + name);
+        }
+        this.name = name;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.username = username;
+        this.password = password;
+        this.concurrency = concurrency;
+        this.inFlight = concurrency > 0 ? new Semaphore(concurrency, true) : null;
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (1_000_000_000L / requestsPerSecond) : 0;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the URL of the fo/asset/group API on this platform
+     */
+    public String getAssetGroupUrl() {
+        return baseUrl + "/api/2.0/fo/asset/group/";
+    }
+
+    /**
+     * @return the value of the Authorization header for this platform's credentials
+     */
+    public String getAuthorization() {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
+    }
+
+    /**
+     * @return the maximum number of requests in flight (the upper bound if adaptive), or 0 if unlimited
+     */
+    public int getConcurrency() {
+        AdaptiveLimiter limiter = adaptiveLimiter;
+        return limiter != null ? limiter.getMaxLimit() : concurrency;
+    }
+
+    public AdaptiveLimiter getAdaptiveLimiter() {
+        return adaptiveLimiter;
+    }
+
+    /**
+     * Adapts the cap on requests in flight with the given limiter instead of the fixed concurrency.
+     * Must be set before the first request.
+     *
+     * @param adaptiveLimiter the limiter, or null for the fixed cap
+     */
+    public void setAdaptiveLimiter(AdaptiveLimiter adaptiveLimiter) {
+        this.adaptiveLimiter = adaptiveLimiter;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Replaces the circuit breaker of this platform.
+     *
+     * @param circuitBreaker the circuit breaker to use
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Waits for a free request slot and for the rate budget, then takes the slot.
+     * Every call must be followed by {@link #release(long, boolean)}.
+     *
+     * @return the time the request may start, for measuring its latency
+     */
+    public long acquire() {
+        AdaptiveLimiter limiter = adaptiveLimiter;
+        if (limiter != null) {
+            limiter.acquire();
+        } else if (inFlight != null) {
+            inFlight.acquireUninterruptibly();
+        }
+        if (intervalNanos == 0) return System.nanoTime();
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long at = Math.max(now, nextRequestAt);
+            nextRequestAt = at + intervalNanos;
+            wait = at - now;
+        }
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns the request slot taken by {@link #acquire()} and reports how the request went to the
+     * adaptive limiter, if any.
+     *
+     * @param startedAt  the value returned by {@link #acquire()}
+     * @param overloaded true if the request was throttled, failed with a server error or got no response
+     */
+    public void release(long startedAt, boolean overloaded) {
+        AdaptiveLimiter limiter = adaptiveLimiter;
+        if (limiter != null) {
+            limiter.release(System.nanoTime() - startedAt, overloaded);
+        } else if (inFlight != null) {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * @param groupName asset group name
+     * @param ttlNanos  how long a resolved ID is reused
+     * @return the cached group ID, or null if not cached or expired
+     */
+    String cachedGroupId(String groupName, long ttlNanos) {
+        CachedGroupId cached = groupIds.get(groupName);
+        return cached != null && System.nanoTime() - cached.resolvedAt < ttlNanos ? cached.groupId : null;
+    }
+
+    /**
+     * Caches a resolved group ID.
+     */
+    void cacheGroupId(String groupName, String groupId) {
+        groupIds.put(groupName, new CachedGroupId(groupId, System.nanoTime()));
+    }
+
+    /**
+     * Group ID and the time it was resolved.
+     */
+    private record CachedGroupId(String groupId, long resolvedAt) {
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + baseUrl + ")";
+    }
+}
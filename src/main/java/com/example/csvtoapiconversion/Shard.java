@@ -0,0 +1,99 @@
+package com.example.csvtoapiconversion;
+
+import java.nio.file.*;
+
+/**
+ * One of n worker processes that split a sync between them by group.
+ * <p>
+ * A group belongs to shard {@code hash(name) mod n}, where the hash is 32-bit FNV-1a over the
+ * name's UTF-16 characters, so every worker, on any machine and JVM, assigns a group to the same
+ * shard. The hash only depends on the name: an owner group and a contact group with the same name
+ * are the same Qualys group and land in the same shard, so their edits keep their order.
+ * <p>
+ * Each shard writes its own timestamp, dead-letter, rejects and plan files, named after the
+ * unsharded file with {@code .shard-<i>-of-<n>} before the extension.
+ */
+public class Shard {
+
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final int index;
+    private final int count;
+
+    /**
+     * @param index Shard index, 0 to count - 1
+     * @param count Number of shards
+     */
+    public Shard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard " + index + "/" + count + "; expected i/n with 0 <= i < n");
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Parses a shard given as "i/n".
+     *
+     * @param value "i/n", with 0 &lt;= i &lt; n
+     * @return the shard
+     */
+    public static Shard parse(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Shard must be given as i/n: " + value);
+        }
+        return new Shard(Integer.parseInt(value.substring(0, slash).trim()), Integer.parseInt(value.substring(slash + 1).trim()));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param groupName owner or contact group name
+     * @return true if the group belongs to this shard
+     */
+    public boolean owns(String groupName) {
+        return Integer.remainderUnsigned(hash(groupName), count) == index;
+    }
+
+    /**
+     * @param name group name
+     * @return the 32-bit FNV-1a hash of the name's characters
+     */
+    static int hash(CharSequence name) {
+        int hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Names this shard's copy of an output file: {@code CsvToApiConversion.txt} becomes
+     * {@code CsvToApiConversion.shard-1-of-4.txt}.
+     *
+     * @param path unsharded file
+     * @return the file of this shard, in the same directory
+     */
+    public Path file(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String tag = ".shard-" + index + "-of-" + count;
+        String sharded = dot > 0 ? name.substring(0, dot) + tag + name.substring(dot) : name + tag;
+        return path.resolveSibling(sharded);
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
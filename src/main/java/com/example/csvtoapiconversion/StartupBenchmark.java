@@ -0,0 +1,119 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Startup benchmark for short, cron-style runs: launches the application jar repeatedly as a
+ * child JVM, with and without the application class-data-sharing (AppCDS) archive, and reports
+ * time-to-first-row and total wall-clock time for each.
+ * <p>
+ * Each run is a dry run ({@code suppressApiCall=true}) in a temporary working directory, so no
+ * Qualys request is made and the project's CsvToApiConversion.txt is left untouched. Runs of the two
+ * variants are interleaved so that disk-cache and CPU-frequency effects hit both equally.
+ * <p>
+ * Usage: {@code StartupBenchmark <jar> <cds-archive> [csvPath] [runs]}
+ * (the {@code startup} Maven profile runs it after building the jar and the archive).
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: StartupBenchmark <jar> <cds-archive> [csvPath] [runs]");
+            System.exit(2);
+        }
+        Path jar = Paths.get(args[0]).toAbsolutePath();
+        Path archive = Paths.get(args[1]).toAbsolutePath();
+        Path csv = Paths.get(args.length > 2 ? args[2] : "src/main/resources/sample.csv").toAbsolutePath();
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        if (!Files.exists(archive)) {
+            System.err.println("CDS archive not found: " + archive);
+            System.exit(2);
+        }
+
+        Path workDir = Files.createTempDirectory("csv-to-api-startup");
+        List<String> withoutArchive = List.of();
+        List<String> withArchive = List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:auto");
+
+        // One untimed run each to warm the OS file cache
+        launch(jar, csv, withoutArchive, workDir);
+        launch(jar, csv, withArchive, workDir);
+
+        long[][] baseline = new long[2][runs];
+        long[][] cds = new long[2][runs];
+        for (int i = 0; i < runs; i++) {
+            long[] a = launch(jar, csv, withoutArchive, workDir);
+            long[] b = launch(jar, csv, withArchive, workDir);
+            baseline[0][i] = a[0];
+            baseline[1][i] = a[1];
+            cds[0][i] = b[0];
+            cds[1][i] = b[1];
+        }
+
+        System.out.printf("Startup benchmark: %d runs of %s on %s%n", runs, jar.getFileName(), csv.getFileName());
+        System.out.printf("%-16s %22s %22s%n", "", "first row (ms)", "total (ms)");
+        System.out.printf("%-16s %22s %22s%n", "", "median / mean", "median / mean");
+        print("without AppCDS", baseline);
+        print("with AppCDS", cds);
+        System.out.printf("%-16s %21.1f%% %21.1f%%%n", "improvement",
+            100.0 * (1 - (double) median(cds[0]) / median(baseline[0])),
+            100.0 * (1 - (double) median(cds[1]) / median(baseline[1])));
+    }
+
+    /**
+     * Runs the application once as a child JVM.
+     *
+     * @return {time-to-first-row, total} in nanoseconds
+     * @throws IllegalStateException if the run fails or never prints the startup marker
+     */
+    private static long[] launch(Path jar, Path csv, List<String> jvmOptions, Path workDir) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-D" + CsvUtils.STARTUP_MARKER_PROPERTY + "=true");
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", jar.toString(), csv.toString(), "01/01/2000 12:00:00 AM", "true"));
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+            .directory(workDir.toFile())
+            .redirectError(ProcessBuilder.Redirect.DISCARD);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        long firstRow = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (firstRow < 0 && line.equals(CsvUtils.STARTUP_MARKER)) {
+                    firstRow = System.nanoTime() - start;
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        long total = System.nanoTime() - start;
+        if (exitCode != 0) {
+            throw new IllegalStateException("Benchmark run failed with exit code " + exitCode + ": " + command);
+        }
+        if (firstRow < 0) {
+            // No row was processed, so there is no time-to-first-row to report
+            throw new IllegalStateException("Benchmark run never printed the startup marker: " + command);
+        }
+        return new long[]{firstRow, total};
+    }
+
+    private static void print(String label, long[][] samples) {
+        System.out.printf("%-16s %10.1f / %9.1f %10.1f / %9.1f%n", label,
+            median(samples[0]) / 1e6, mean(samples[0]) / 1e6,
+            median(samples[1]) / 1e6, mean(samples[1]) / 1e6);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double mean(long[] values) {
+        return Arrays.stream(values).average().orElse(0);
+    }
+}
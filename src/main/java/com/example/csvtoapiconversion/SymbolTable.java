@@ -0,0 +1,191 @@
+package com.example.csvtoapiconversion;
+
+import java.util.*;
+
+/**
+ * Dictionary that maps each distinct name (owner or contact) to a dense int ID.
+ * <p>
+ * Names are interned directly from a character range of the input line, so a name that
+ * has already been seen costs one hash computation and one comparison, and allocates nothing.
+ * The characters of every distinct name are kept once in a shared char arena; the String
+ * form of a name is only created when {@link #name(int)} is called (typically at dispatch time).
+ */
+public class SymbolTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Open-addressing hash table holding (id + 1), 0 marks an empty slot
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+
+    // Per-ID data, indexed by symbol ID
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int size;
+
+    // Shared storage for the characters of all distinct names
+    private char[] arena = new char[1024];
+    private int arenaLength;
+
+    /**
+     * Returns the ID for the characters {@code s[start, end)}, assigning the next free ID
+     * if the name has not been seen before.
+     *
+     * @param s     the source characters (usually the raw CSV line)
+     * @param start start index, inclusive
+     * @param end   end index, exclusive
+     * @return the dense ID of the name (0-based)
+     */
+    public int intern(CharSequence s, int start, int end) {
+        int hash = hash(s, start, end);
+        int slot = hash & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return insert(s, start, end, hash, slot);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(id, s, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the ID for the whole of the given name, assigning one if needed.
+     *
+     * @param name the name to intern
+     * @return the dense ID of the name
+     */
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /**
+     * Looks up the ID of a name without adding it.
+     *
+     * @param name the name to look up
+     * @return the ID, or -1 if the name is not in the table
+     */
+    public int lookup(String name) {
+        return lookup(name, 0, name.length());
+    }
+
+    /**
+     * Looks up the ID of the characters {@code s[start, end)} without adding them.
+     *
+     * @param s     the source characters
+     * @param start start index, inclusive
+     * @param end   end index, exclusive
+     * @return the ID, or -1 if the name is not in the table
+     */
+    public int lookup(CharSequence s, int start, int end) {
+        int hash = hash(s, start, end);
+        int slot = hash & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(id, s, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Materializes the name for an ID. The String is created on first use and cached.
+     *
+     * @param id a symbol ID returned by {@link #intern}
+     * @return the name
+     */
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown symbol ID: " + id);
+        }
+        String name = names[id];
+        if (name == null) {
+            name = new String(arena, offsets[id], lengths[id]);
+            names[id] = name;
+        }
+        return name;
+    }
+
+    /**
+     * @return the number of distinct names in the table; IDs are 0 to size() - 1
+     */
+    public int size() {
+        return size;
+    }
+
+    private int insert(CharSequence s, int start, int end, int hash, int slot) {
+        int id = size;
+        int length = end - start;
+        if (id == hashes.length) {
+            int capacity = id * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        if (arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+        }
+        for (int i = start; i < end; i++) {
+            arena[arenaLength + i - start] = s.charAt(i);
+        }
+        hashes[id] = hash;
+        offsets[id] = arenaLength;
+        lengths[id] = length;
+        arenaLength += length;
+        size++;
+
+        slots[slot] = id + 1;
+        // Keep the load factor at or below 1/2
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int capacity = slots.length * 2;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private boolean matches(int id, CharSequence s, int start, int end) {
+        int length = end - start;
+        if (lengths[id] != length) {
+            return false;
+        }
+        int offset = offsets[id];
+        for (int i = 0; i < length; i++) {
+            if (arena[offset + i] != s.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        // Spread the bits so that linear probing over the low bits stays short
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.csvtoapiconversion;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.logging.*;
+
+/**
+ * The fully computed list of Qualys group operations for one run, in dispatch order
+ * (removals before additions), together with the application start timestamp of the run
+ * that produced it.
+ * <p>
+ * A plan can be written to a compact binary file by the {@code plan} command and executed
+ * later by the {@code apply} command without parsing the CSV again.
+ * <p>
+ * File layout (all integers are unsigned LEB128 varints unless noted):
+ * <pre>
+ *   int     magic "CTAP"
+ *   byte    format version
+ *   UTF     application start timestamp (ISO_LOCAL_DATE_TIME)
+ *   varint  string count, then each string as UTF (group names, group IDs and IPs, deduplicated)
+ *   varint  operation count, then per operation:
+ *           byte action (0 = remove, 1 = add), byte group type (0 = owner, 1 = contact),
+ *           varint group name index, varint group ID index + 1 (0 = unresolved),
+ *           varint IP count, varint IP index...
+ * </pre>
+ */
+public class SyncPlan {
+
+    private static final int MAGIC = 0x43544150; // "CTAP"
+    private static final int VERSION = 1;
+
+    private final LocalDateTime appStartTimestamp;
+    private final List<GroupOperation> operations;
+
+    /**
+     * @param appStartTimestamp Start timestamp of the run that computed the plan
+     * @param operations        Operations in dispatch order
+     */
+    public SyncPlan(LocalDateTime appStartTimestamp, List<GroupOperation> operations) {
+        this.appStartTimestamp = appStartTimestamp;
+        this.operations = operations;
+    }
+
+    public LocalDateTime getAppStartTimestamp() {
+        return appStartTimestamp;
+    }
+
+    public List<GroupOperation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Builds the operations for the aggregated owner and contact indexes.
+     * Removals (deactivated IPs) come before additions (active IPs), owners before contacts.
+     *
+     * @param owners            Owner index
+     * @param contacts          Contact index
+     * @param appStartTimestamp Start timestamp of the current run
+     * @return the plan, with unresolved group IDs
+     */
+    public static SyncPlan build(GroupIndex owners, GroupIndex contacts, LocalDateTime appStartTimestamp) {
+        return build(owners, contacts, appStartTimestamp, id -> true, id -> true);
+    }
+
+    /**
+     * Builds the operations for the selected groups of the owner and contact indexes,
+     * in the same order as {@link #build(GroupIndex, GroupIndex, LocalDateTime)}.
+     *
+     * @param owners            Owner index
+     * @param contacts          Contact index
+     * @param appStartTimestamp Start timestamp of the current run
+     * @param ownerFilter       Selects the owner group IDs to include
+     * @param contactFilter     Selects the contact group IDs to include
+     * @return the plan, with unresolved group IDs
+     */
+    public static SyncPlan build(GroupIndex owners, GroupIndex contacts, LocalDateTime appStartTimestamp,
+                                 IntPredicate ownerFilter, IntPredicate contactFilter) {
+        List<GroupOperation> operations = new ArrayList<>();
+        addOperations(owners, "remove", ownerFilter, operations);
+        addOperations(contacts, "remove", contactFilter, operations);
+        addOperations(owners, "add", ownerFilter, operations);
+        addOperations(contacts, "add", contactFilter, operations);
+        return new SyncPlan(appStartTimestamp, operations);
+    }
+
+    /**
+     * Builds the operations of a single group: the removal (deactivated IPs) before the addition (active IPs).
+     *
+     * @param groups Owner or contact index
+     * @param id     Group ID
+     * @return the group's operations, empty if it has no IPs
+     */
+    public static List<GroupOperation> groupOperations(GroupIndex groups, int id) {
+        List<GroupOperation> operations = new ArrayList<>(2);
+        Set<String> deactivated = groups.getDeactivatedIps(id);
+        if (deactivated != null) {
+            operations.add(new GroupOperation(
+                groups.getGroupType(), groups.name(id), null, "remove", deactivated.toArray(new String[0])));
+        }
+        Set<String> active = groups.getActiveIps(id);
+        if (active != null) {
+            operations.add(new GroupOperation(
+                groups.getGroupType(), groups.name(id), null, "add", active.toArray(new String[0])));
+        }
+        return operations;
+    }
+
+    private static void addOperations(GroupIndex groups, String action, IntPredicate filter, List<GroupOperation> operations) {
+        for (int id = 0; id < groups.size(); id++) {
+            Set<String> ips = "add".equals(action) ? groups.getActiveIps(id) : groups.getDeactivatedIps(id);
+            if (ips != null && filter.test(id)) {
+                operations.add(new GroupOperation(
+                    groups.getGroupType(), groups.name(id), null, action, ips.toArray(new String[0])));
+            }
+        }
+    }
+
+    /**
+     * Looks up the Qualys asset group ID of every operation, once per distinct group name.
+     * Groups that cannot be found stay unresolved and are recorded as GROUP_NOT_FOUND; lookups
+     * that Qualys did not answer leave them unresolved too, recorded as REQUEST_FAILED or CIRCUIT_OPEN.
+     *
+     * @param errorRecords List to collect error records
+     * @param logger       Logger for output
+     * @return a new plan with group IDs filled in where found
+     */
+    public SyncPlan resolveGroupIds(List<String> errorRecords, Logger logger) {
+        Map<String, Optional<String>> resolved = new HashMap<>();
+        List<GroupOperation> result = new ArrayList<>(operations.size());
+        for (GroupOperation op : operations) {
+            // Owner and contact groups with the same name are the same group, unless routed to different platforms
+            String key = QualysApi.getRouter().route(op.getGroupType(), op.getGroupName()).getName() + '\0' + op.getGroupName();
+            Optional<String> groupId = resolved.computeIfAbsent(key, k -> {
+                String name = op.getGroupName();
+                QualysApi.Reply lookup = QualysApi.resolveGroup(op.getGroupType(), name, logger);
+                if (lookup.failure() != null) {
+                    errorRecords.add(lookup.failure() + ":" + name);
+                    logger.warning("Lookup of asset group " + name + " failed: " + lookup.failure());
+                } else if (lookup.value() == null) {
+                    errorRecords.add("GROUP_NOT_FOUND:" + name);
+                    logger.warning("Asset group not found for groupName: " + name);
+                }
+                return Optional.ofNullable(lookup.value());
+            });
+            result.add(groupId.map(op::withGroupId).orElse(op));
+        }
+        return new SyncPlan(appStartTimestamp, result);
+    }
+
+    /**
+     * Reduces the plan to the edits that change the current membership of the Qualys groups.
+     * <p>
+     * For a group with removals D and additions A (over its owner and contact operations), the
+     * target membership is (current \ D) ∪ A. Only IPs in D that are currently members and not in A
+     * are still removed, and only IPs in A that are not yet members are added (once per group).
+     * Operations left without IPs are dropped. Operations without a group ID, or whose group's
+     * membership is unknown, are kept unchanged.
+     *
+     * @param memberships Current membership per Qualys group ID
+     * @param logger      Logger for output
+     * @return a new plan with only the edits that change membership
+     */
+    public SyncPlan reconcile(Map<String, GroupMembership> memberships, Logger logger) {
+        Map<String, Set<String>> additions = new HashMap<>();
+        for (GroupOperation op : operations) {
+            if ("add".equals(op.getAction()) && op.getGroupId() != null) {
+                Collections.addAll(additions.computeIfAbsent(op.getGroupId(), id -> new HashSet<>()), op.getIps());
+            }
+        }
+
+        Map<String, Set<String>> added = new HashMap<>();
+        List<GroupOperation> result = new ArrayList<>();
+        int ipsBefore = 0;
+        int ipsAfter = 0;
+        for (GroupOperation op : operations) {
+            GroupMembership current = op.getGroupId() == null ? null : memberships.get(op.getGroupId());
+            ipsBefore += op.getIps().length;
+            if (current == null) {
+                result.add(op);
+                ipsAfter += op.getIps().length;
+                continue;
+            }
+            List<String> ips = new ArrayList<>();
+            if ("remove".equals(op.getAction())) {
+                Set<String> groupAdditions = additions.getOrDefault(op.getGroupId(), Set.of());
+                for (String ip : op.getIps()) {
+                    if (current.contains(ip) && !groupAdditions.contains(ip)) ips.add(ip);
+                }
+            } else {
+                Set<String> groupAdded = added.computeIfAbsent(op.getGroupId(), id -> new HashSet<>());
+                for (String ip : op.getIps()) {
+                    if (!current.contains(ip) && groupAdded.add(ip)) ips.add(ip);
+                }
+            }
+            if (!ips.isEmpty()) {
+                result.add(new GroupOperation(op.getGroupType(), op.getGroupName(), op.getGroupId(), op.getAction(), ips.toArray(new String[0])));
+                ipsAfter += ips.size();
+            }
+        }
+        if (logger.isLoggable(Level.INFO)) {
+            logger.info(String.format("Reconciled against %d listed groups: %d of %d operations and %d of %d IPs change membership",
+                memberships.size(), result.size(), operations.size(), ipsAfter, ipsBefore));
+        }
+        return new SyncPlan(appStartTimestamp, result);
+    }
+
+    /**
+     * Writes the plan to a binary plan file, replacing any existing file.
+     *
+     * @param path Plan file path
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Map<String, Integer> stringIndex = new LinkedHashMap<>();
+        for (GroupOperation op : operations) {
+            stringIndex.putIfAbsent(op.getGroupName(), stringIndex.size());
+            if (op.getGroupId() != null) {
+                stringIndex.putIfAbsent(op.getGroupId(), stringIndex.size());
+            }
+            for (String ip : op.getIps()) {
+                stringIndex.putIfAbsent(ip, stringIndex.size());
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(appStartTimestamp.toString());
+            writeVarint(out, stringIndex.size());
+            for (String s : stringIndex.keySet()) {
+                out.writeUTF(s);
+            }
+            writeVarint(out, operations.size());
+            for (GroupOperation op : operations) {
+                out.writeByte("add".equals(op.getAction()) ? 1 : 0);
+                out.writeByte("contact".equals(op.getGroupType()) ? 1 : 0);
+                writeVarint(out, stringIndex.get(op.getGroupName()));
+                writeVarint(out, op.getGroupId() == null ? 0 : stringIndex.get(op.getGroupId()) + 1);
+                writeVarint(out, op.getIps().length);
+                for (String ip : op.getIps()) {
+                    writeVarint(out, stringIndex.get(ip));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a plan file written by {@link #write(Path)}.
+     *
+     * @param path Plan file path
+     * @return the plan
+     * @throws IOException if the file cannot be read or is not a plan file
+     */
+    public static SyncPlan read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a plan file: " + path);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported plan file version " + version + ": " + path);
+            }
+            LocalDateTime appStartTimestamp = LocalDateTime.parse(in.readUTF());
+            String[] strings = new String[readVarint(in)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            int count = readVarint(in);
+            List<GroupOperation> operations = new ArrayList<>(count);
+            for (int n = 0; n < count; n++) {
+                String action = in.readUnsignedByte() == 1 ? "add" : "remove";
+                String groupType = in.readUnsignedByte() == 1 ? "contact" : "owner";
+                String groupName = strings[readVarint(in)];
+                int groupIdIndex = readVarint(in);
+                String[] ips = new String[readVarint(in)];
+                for (int i = 0; i < ips.length; i++) {
+                    ips[i] = strings[readVarint(in)];
+                }
+                operations.add(new GroupOperation(
+                    groupType, groupName, groupIdIndex == 0 ? null : strings[groupIdIndex - 1], action, ips));
+            }
+            return new SyncPlan(appStartTimestamp, operations);
+        }
+    }
+
+    private static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in plan file");
+    }
+}
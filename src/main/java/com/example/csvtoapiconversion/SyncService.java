@@ -0,0 +1,213 @@
+package com.example.csvtoapiconversion;
+
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.*;
+
+/**
+ * Long-running service mode: a small local HTTP API that runs sync jobs in a warm JVM.
+ * <p>
+ * Keeping the process alive between jobs keeps JIT-compiled code, the resolved group-ID cache
+ * and the JDK's idle keep-alive connections to Qualys warm, so short incremental runs no longer pay
+ * JVM startup and warm-up every time.
+ * <p>
+ * Endpoints (bound to the loopback interface only):
+ * <ul>
+ *   <li>{@code POST /jobs?path=/data/export.csv} runs a sync of a CSV file on the server's disk.</li>
+ *   <li>{@code POST /jobs} with the CSV as request body runs a sync of the uploaded CSV.</li>
+ *   <li>{@code GET /health} returns OK.</li>
+ * </ul>
+ * Optional query parameters for jobs: {@code start} (start timestamp, MM/dd/yyyy hh:mm:ss a) and
+ * {@code suppressApiCall} (true for a dry run). Jobs run on a fixed worker pool; the response is
+ * streamed back as plain text, one progress line per operation, ending with a summary line.
+ * <p>
+ * Jobs that run at the same time share the dead-letter file, which is appended under a lock, and
+ * the start timestamp, which only moves forward. Each job writes its own rejects report, e.g.
+ * {@code CsvToApiConversion.job-3.rejects}.
+ */
+public class SyncService {
+
+    private static final Logger LOGGER = Logger.getLogger(SyncService.class.getName());
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final List<String> jobOptions;
+    private final AtomicLong jobIds = new AtomicLong();
+
+    /**
+     * @param address    Address to listen on
+     * @param workerCount Number of jobs that may run at the same time
+     * @param jobOptions Options passed to every job, as "--name=value" arguments
+     * @throws IOException if the server socket cannot be bound
+     */
+    public SyncService(InetSocketAddress address, int workerCount, List<String> jobOptions) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.workers = Executors.newFixedThreadPool(workerCount);
+        this.jobOptions = jobOptions;
+        // Request threads only relay progress; the jobs themselves run on the worker pool
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/jobs", this::handleJob);
+        server.createContext("/health", this::handleHealth);
+    }
+
+    /**
+     * Starts the service for the {@code serve} command and keeps running until the JVM is stopped.
+     * Reads --port (default 8080) and --workers (default 2); every other option is passed to each job.
+     *
+     * @param config Parsed arguments
+     * @throws IOException if the server socket cannot be bound
+     */
+    public static void serve(CsvToApiConversionApplication.ArgsConfig config) throws IOException {
+        int port = Integer.parseInt(config.getOption("port", "8080"));
+        int workerCount = Integer.parseInt(config.getOption("workers", "2"));
+        List<String> jobOptions = new ArrayList<>();
+        config.getOptions().forEach((name, value) -> {
+            if (!"port".equals(name) && !"workers".equals(name)) {
+                jobOptions.add("--" + name + "=" + value);
+            }
+        });
+
+        SyncService service = new SyncService(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), workerCount, jobOptions);
+        service.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("Sync service listening on http://%s:%d/jobs with %d workers",
+                InetAddress.getLoopbackAddress().getHostAddress(), service.getPort(), workerCount));
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and shuts down the worker pool after running jobs finish.
+     */
+    public void stop() {
+        server.stop(1);
+        workers.shutdown();
+    }
+
+    /**
+     * @return the port the service is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        byte[] body = "OK\n".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private void handleJob(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        // Either a path on the server's disk, or the uploaded CSV in a temporary file
+        Path upload = null;
+        Path csvPath;
+        if (query.containsKey("path")) {
+            csvPath = Paths.get(query.get("path"));
+        } else {
+            upload = Files.createTempFile("csv-to-api-job", ".csv");
+            try (InputStream is = exchange.getRequestBody()) {
+                Files.copy(is, upload, StandardCopyOption.REPLACE_EXISTING);
+            }
+            csvPath = upload;
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add(csvPath.toString());
+        args.add(query.getOrDefault("start", ""));
+        args.add(query.getOrDefault("suppressApiCall", "false"));
+        args.addAll(jobOptions);
+        args.add("--job=" + jobIds.incrementAndGet());
+        CsvToApiConversionApplication.ArgsConfig config = CsvToApiConversionApplication.parseArgs(args.toArray(new String[0]));
+
+        BlockingQueue<String> progress = new LinkedBlockingQueue<>();
+        Path jobUpload = upload;
+        Future<?> job = workers.submit(() -> {
+            try {
+                CsvToApiConversionApplication.runSync(config, progress::add);
+            } catch (Exception e) {
+                LOGGER.severe("Sync job for " + csvPath + " failed: " + e.getMessage());
+                progress.add("[ERROR] " + e.getMessage());
+            } finally {
+                if (jobUpload != null) {
+                    try {
+                        Files.deleteIfExists(jobUpload);
+                    } catch (IOException e) {
+                        LOGGER.warning("Could not delete uploaded CSV " + jobUpload + ": " + e.getMessage());
+                    }
+                }
+            }
+        });
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        // Length 0 selects chunked encoding so progress can be streamed while the job runs
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            writeLine(os, "[QUEUED] " + csvPath);
+            while (true) {
+                String line = progress.poll(200, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    writeLine(os, line);
+                } else if (job.isDone() && progress.isEmpty()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client went away; the job keeps running and still logs its outcome
+            LOGGER.warning("Progress stream for " + csvPath + " closed early: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Names a job's copy of an output file: {@code CsvToApiConversion.rejects} becomes
+     * {@code CsvToApiConversion.job-3.rejects}.
+     *
+     * @param path shared file
+     * @param job  job number
+     * @return the file of the job, in the same directory
+     */
+    static Path jobFile(Path path, String job) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String tag = ".job-" + job;
+        return path.resolveSibling(dot > 0 ? name.substring(0, dot) + tag + name.substring(dot) : name + tag);
+    }
+
+    private static void writeLine(OutputStream os, String line) throws IOException {
+        os.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+}
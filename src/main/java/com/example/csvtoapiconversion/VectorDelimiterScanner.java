@@ -0,0 +1,54 @@
+package com.example.csvtoapiconversion;
+
+import jdk.incubator.vector.*;
+
+/**
+ * SIMD delimiter scanner using the incubating Vector API.
+ * <p>
+ * Compares a whole vector of bytes against ',', '\n' and '"' at once: 32 bytes per step with AVX2,
+ * 64 with AVX-512 ({@link ByteVector#SPECIES_PREFERRED}). The resulting lane mask is turned into
+ * positions with one trailing-zero count per match, so the loop does not branch per byte.
+ * The bytes left over after the last full vector are scanned one at a time.
+ * <p>
+ * Only created by {@link DelimiterScanner#create()}, and only when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+class VectorDelimiterScanner extends DelimiterScanner {
+
+    // Lane masks are read as a long, so at most 64 lanes (512 bits)
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() <= 64
+            ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+
+    @Override
+    public int scan(byte[] buf, int from, int to, int[] positions) {
+        int count = 0;
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        ByteVector bits = ByteVector.zero(SPECIES);
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, buf, i);
+            bits = bits.or(v);
+            long mask = v.eq((byte) ',').or(v.eq((byte) '\n')).or(v.eq((byte) '"')).toLong();
+            while (mask != 0) {
+                positions[count++] = i + Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+            }
+        }
+        // Non-ASCII bytes have the sign bit set
+        boolean nonAscii = bits.compare(VectorOperators.LT, (byte) 0).anyTrue();
+        for (; i < to; i++) {
+            byte b = buf[i];
+            if (b < 0) nonAscii = true;
+            if (b == ',' || b == '\n' || b == '"') {
+                positions[count++] = i;
+            }
+        }
+        ascii = !nonAscii;
+        return count;
+    }
+
+    @Override
+    public String getName() {
+        return "vector(" + SPECIES.vectorBitSize() + " bit)";
+    }
+}
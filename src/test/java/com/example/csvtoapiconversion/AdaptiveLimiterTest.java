@@ -0,0 +1,117 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private AdaptiveLimiter limiter;
+    private int held;
+
+    /**
+     * Keeps the limiter saturated, as busy dispatch threads do: fills every free slot, then
+     * completes one request.
+     */
+    private void complete(long latencyNanos, boolean overloaded) {
+        while (held < limiter.getLimit()) {
+            limiter.acquire();
+            held++;
+        }
+        limiter.release(latencyNanos, overloaded);
+        held--;
+    }
+
+    @Test
+    void testRelease_growsAdditivelyUpToMax() {
+        limiter = new AdaptiveLimiter("us1", 1, 4);
+        assertEquals(1, limiter.getLimit());
+        complete(LATENCY, false);
+        assertEquals(2, limiter.getLimit());
+        // About one more per round of requests: + 1/2, + 1/2.5, + 1/2.9
+        complete(LATENCY, false);
+        complete(LATENCY, false);
+        assertEquals(2, limiter.getLimit());
+        complete(LATENCY, false);
+        assertEquals(3, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            complete(LATENCY, false);
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(LATENCY, limiter.getBaselineNanos());
+    }
+
+    @Test
+    void testRelease_doesNotGrowWhileUnused() {
+        limiter = new AdaptiveLimiter("us1", 2, 8);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+            limiter.release(LATENCY, false);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testRelease_cutsMultiplicativelyOncePerRound() {
+        limiter = new AdaptiveLimiter("us1", 2, 10);
+        for (int i = 0; i < 200; i++) {
+            complete(LATENCY, false);
+        }
+        assertEquals(10, limiter.getLimit());
+
+        complete(LATENCY, true);
+        assertEquals(7, limiter.getLimit());
+        // The other requests of the round were sent under the old limit
+        for (int i = 0; i < 9; i++) {
+            complete(LATENCY, true);
+        }
+        assertEquals(7, limiter.getLimit());
+        complete(LATENCY, true);
+        assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            complete(LATENCY, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testRelease_cutsOnLatencyRise() {
+        limiter = new AdaptiveLimiter("us1", 1, 10);
+        for (int i = 0; i < 200; i++) {
+            complete(LATENCY, false);
+        }
+        assertEquals(10, limiter.getLimit());
+        complete(LATENCY * 3 / 2, false);
+        assertEquals(10, limiter.getLimit());
+        complete(LATENCY * 3, false);
+        assertEquals(7, limiter.getLimit());
+        // A lower latency becomes the new baseline
+        complete(LATENCY / 2, false);
+        assertEquals(LATENCY / 2, limiter.getBaselineNanos());
+    }
+
+    @Test
+    void testAcquire_blocksAtTheLimit() throws Exception {
+        limiter = new AdaptiveLimiter("us1", 1, 4);
+        limiter.acquire();
+        CompletableFuture<Void> second = CompletableFuture.runAsync(limiter::acquire);
+        assertThrows(TimeoutException.class, () -> second.get(100, TimeUnit.MILLISECONDS));
+        limiter.release(LATENCY, false);
+        second.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testParse() {
+        AdaptiveLimiter parsed = AdaptiveLimiter.parse("us1", "2-16");
+        assertEquals(2, parsed.getLimit());
+        assertEquals(16, parsed.getMaxLimit());
+        assertThrows(IllegalArgumentException.class, () -> AdaptiveLimiter.parse("us1", "8"));
+        assertThrows(IllegalArgumentException.class, () -> AdaptiveLimiter.parse("us1", "8-2"));
+        assertThrows(IllegalArgumentException.class, () -> AdaptiveLimiter.parse("us1", "0-2"));
+        assertThrows(IllegalArgumentException.class, () -> AdaptiveLimiter.parse("us1", "a-b"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CidrFilterTest {
+
+    private static boolean matches(CidrFilter filter, String ip) {
+        return filter.matches(IpAddresses.parse(ip, 0, ip.length()));
+    }
+
+    @Test
+    void testMatches_includeAndExcludeBlocks() {
+        CidrFilter filter = CidrFilter.parse("10.0.0.0/8, 172.16.0.0/12", "10.1.0.0/16,10.2.3.4");
+
+        assertTrue(matches(filter, "10.0.0.1"));
+        assertTrue(matches(filter, "172.31.255.255"));
+        assertFalse(matches(filter, "172.32.0.0"));
+        assertFalse(matches(filter, "10.1.200.1"));
+        assertFalse(matches(filter, "10.2.3.4"));
+        assertTrue(matches(filter, "10.2.3.5"));
+        assertFalse(matches(filter, "192.168.1.1"));
+        // IPv4 blocks never match IPv6 addresses
+        assertFalse(matches(filter, "::ffff:10.0.0.1"));
+    }
+
+    @Test
+    void testMatches_ipv6AndExcludeOnly() {
+        CidrFilter filter = CidrFilter.parse(null, "2001:db8::/33");
+
+        assertFalse(matches(filter, "2001:db8::1"));
+        assertFalse(matches(filter, "2001:db8:7fff::1"));
+        assertTrue(matches(filter, "2001:db8:8000::1"));
+        assertTrue(matches(filter, "192.168.1.1"));
+        assertTrue(matches(CidrFilter.parse("0.0.0.0/0", null), "203.0.113.7"));
+    }
+
+    @Test
+    void testParse_invalidBlocks_throw() {
+        assertThrows(IllegalArgumentException.class, () -> CidrFilter.parse("10.0.0.0/33", null));
+        assertThrows(IllegalArgumentException.class, () -> CidrFilter.parse("10.0.0/8", null));
+        assertThrows(IllegalArgumentException.class, () -> CidrFilter.parse(null, "fd00::/x"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker newBreaker() {
+        // Window of 4 calls, trips at 50% after 4 calls, open for 1 second, 2 probes
+        return new CircuitBreaker(4, 4, 0.5, 1_000, 2, now::get);
+    }
+
+    private static void call(CircuitBreaker breaker, boolean success) {
+        assertTrue(breaker.tryAcquirePermission());
+        if (success) breaker.onSuccess(); else breaker.onFailure();
+    }
+
+    @Test
+    void testStaysClosedBelowThreshold() {
+        CircuitBreaker breaker = newBreaker();
+        call(breaker, false);
+        call(breaker, true);
+        call(breaker, true);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testOpensOnFailureRateAndFailsFast() {
+        CircuitBreaker breaker = newBreaker();
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, true);
+        call(breaker, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testHalfOpenProbesCloseAfterSuccess() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 4; i++) call(breaker, false);
+        now.addAndGet(1_000_000_000L);
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        // Only two probes may be in flight
+        assertFalse(breaker.tryAcquirePermission());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testFailedProbeReopens() {
+        CircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 4; i++) call(breaker, false);
+        now.addAndGet(1_000_000_000L);
+
+        call(breaker, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(999_000_000L);
+        assertFalse(breaker.tryAcquirePermission());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CmdbGeneratorTest {
+
+    private Path tempCsv;
+
+    @BeforeEach
+    void setup() throws IOException {
+        tempCsv = Files.createTempFile("test-cmdb", ".csv");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(tempCsv);
+    }
+
+    private static String generate(Map<String, String> options) throws IOException {
+        StringWriter out = new StringWriter();
+        new CmdbGenerator(options).write(out);
+        return out.toString();
+    }
+
+    @Test
+    void testWrite_sameSeedSameOutput() throws IOException {
+        String a = generate(Map.of("rows", "500", "seed", "42"));
+        assertEquals(a, generate(Map.of("rows", "500", "seed", "42")));
+        assertNotEquals(a, generate(Map.of("rows", "500", "seed", "43")));
+        assertEquals(500, a.lines().count());
+    }
+
+    @Test
+    void testWrite_parsesWithoutRejects() throws IOException {
+        Map<String, String> options = Map.of("rows", "2000", "owners", "50", "contacts", "200",
+            "ips-per-row", "1-6", "ipv6-ratio", "0.2", "deactivated", "0.25");
+        new CmdbGenerator(options).write(tempCsv);
+
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        List<String> rejects = new ArrayList<>();
+        CsvUtils.processCsv(tempCsv, null, CsvSchema.positional(), owners, contacts, rejects);
+
+        assertEquals(List.of(), rejects);
+        assertTrue(owners.size() <= 50);
+        assertTrue(contacts.size() <= 200);
+        long deactivated = Files.readAllLines(tempCsv).stream().filter(line -> !line.endsWith(",")).count();
+        assertTrue(deactivated > 400 && deactivated < 600, "deactivated rows: " + deactivated);
+    }
+
+    @Test
+    void testWrite_headerLayoutAndContiguousSubnets() throws IOException {
+        Map<String, String> options = new HashMap<>(Map.of("rows", "100", "ips-per-row", "3-3", "subnet-ratio", "1", "header", "true"));
+        new CmdbGenerator(options).write(tempCsv);
+
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        List<String> rejects = new ArrayList<>();
+        CsvSchema schema = CsvSchema.header(CsvSchema.DEFAULT_ASSET_COLUMN, CsvSchema.DEFAULT_CONTACT_COLUMN, CsvSchema.DEFAULT_OWNER_COLUMN,
+            List.of(CsvSchema.DEFAULT_IP_COLUMNS), CsvSchema.DEFAULT_CREATE_COLUMN, CsvSchema.DEFAULT_DEACTIVATED_COLUMN);
+        CsvUtils.processCsv(tempCsv, null, schema, owners, contacts, rejects);
+        assertEquals(List.of(), rejects);
+
+        String row = Files.readAllLines(tempCsv).get(1);
+        String[] ips = row.substring(row.indexOf('"') + 1, row.lastIndexOf('"')).split(",");
+        assertEquals(3, ips.length);
+        int first = Integer.parseInt(ips[0].substring(ips[0].lastIndexOf('.') + 1));
+        assertTrue(ips[2].endsWith("." + (first + 2)), Arrays.toString(ips));
+    }
+
+    @Test
+    void testZipf_skewConcentratesRows() {
+        double[] uniform = CmdbGenerator.zipfCdf(100, 0);
+        double[] skewed = CmdbGenerator.zipfCdf(100, 1.2);
+        assertEquals(0.01, uniform[0], 1e-9);
+        assertTrue(skewed[0] > 0.2);
+        assertEquals(1.0, skewed[99], 1e-9);
+
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 1000; i++) {
+            int rank = CmdbGenerator.sample(skewed, random);
+            assertTrue(rank >= 0 && rank < 100);
+        }
+    }
+}
@@ -178,6 +178,190 @@ class CsvToApiConversionApplicationTest {
         assertFalse(cfg.isSuppressApiCall());
     }
 
+    @Test
+    void testParseArgs_CommandAndOptions() {
+        String[] args = {"plan", "test.csv", "05/14/2025 08:30:00 AM", "--plan-file", "run.plan"};
+        var config = invokeParseArgs(args);
+        CsvToApiConversionApplication.ArgsConfig cfg = (CsvToApiConversionApplication.ArgsConfig) config;
+        assertEquals("plan", cfg.getCommand());
+        assertEquals(Paths.get("test.csv"), cfg.getCsvPath());
+        assertEquals(LocalDateTime.of(2025, 5, 14, 8, 30, 0), cfg.getStartTimestamp());
+        assertEquals(Paths.get("run.plan"), cfg.getPlanFile());
+    }
+
+    @Test
+    void testParseArgs_HeaderSchema() {
+        var cfg = CsvToApiConversionApplication.parseArgs(new String[]{"export.csv", "--header", "--owner-column", "Support Group"});
+        assertTrue(cfg.getCsvSchema().hasHeader());
+        assertFalse(CsvToApiConversionApplication.parseArgs(new String[]{"export.csv"}).getCsvSchema().hasHeader());
+    }
+
+    @Test
+    void testParseArgs_TargetedSyncFilters() {
+        var cfg = CsvToApiConversionApplication.parseArgs(new String[]{"export.csv",
+            "--include-owner", "Platform|QA.*", "--exclude-owner=QA-Legacy", "--exclude-contact=Doe", "--include-cidr=10.0.0.0/8"});
+        var owners = cfg.getGroupFilter("owner");
+        assertTrue(owners.test("Platform"));
+        assertTrue(owners.test("QA-East"));
+        assertFalse(owners.test("QA-Legacy"));
+        assertFalse(owners.test("Platform2"));
+        // With an owner include, contacts are only synced if included themselves
+        assertFalse(cfg.getGroupFilter("contact").test("Smith"));
+        assertNotNull(cfg.getIpFilter());
+        // A targeted sync leaves the start timestamp for the next full run
+        assertNull(cfg.getTimestampFile());
+
+        cfg = CsvToApiConversionApplication.parseArgs(new String[]{"export.csv", "--exclude-contact=Doe"});
+        assertNull(cfg.getGroupFilter("owner"));
+        assertTrue(cfg.getGroupFilter("contact").test("Smith"));
+        assertFalse(cfg.getGroupFilter("contact").test("Doe"));
+        assertNull(cfg.getIpFilter());
+        assertTrue(cfg.isTargeted());
+        assertFalse(CsvToApiConversionApplication.parseArgs(new String[]{"export.csv"}).isTargeted());
+    }
+
+    @Test
+    void testRunSync_PipelinedDryRunMatchesSequential() throws IOException {
+        String[] sequentialArgs = {"src/main/resources/sample.csv", "01/01/2000 12:00:00 AM", "true"};
+        String[] pipelinedArgs = {"src/main/resources/sample.csv", "01/01/2000 12:00:00 AM", "true", "--pipeline"};
+        List<String> sequential = new ArrayList<>();
+        List<String> pipelined = Collections.synchronizedList(new ArrayList<>());
+
+        CsvToApiConversionApplication.runSync(CsvToApiConversionApplication.parseArgs(sequentialArgs), sequential::add);
+        CsvToApiConversionApplication.runSync(CsvToApiConversionApplication.parseArgs(pipelinedArgs), pipelined::add);
+
+        sequential.removeIf(line -> !line.startsWith("[DRY RUN]"));
+        pipelined.removeIf(line -> !line.startsWith("[DRY RUN]"));
+        assertFalse(sequential.isEmpty());
+        assertEquals(sequential, pipelined);
+        Files.deleteIfExists(Paths.get("CsvToApiConversion.txt"));
+    }
+
+    @Test
+    void testRunSync_MultiPlatformDryRunSendsEveryOperation() throws IOException {
+        Path platforms = Files.createTempFile("test-platforms", ".properties");
+        Files.writeString(platforms, String.join("\n",
+            "platforms=us1,eu1",
+            "us1.url=https://qualysapi.qualys.com",
+            "eu1.url=https://qualysapi.qualys.eu",
+            "eu1.concurrency=2",
+            "route.1=eu1 owner [A-M].*"));
+        String[] args = {"src/main/resources/sample.csv", "01/01/2000 12:00:00 AM", "true"};
+        List<String> single = new ArrayList<>();
+        List<String> multi = Collections.synchronizedList(new ArrayList<>());
+        PlatformRouter previous = QualysApi.getRouter();
+        try {
+            CsvToApiConversionApplication.runSync(CsvToApiConversionApplication.parseArgs(args), single::add);
+            QualysApi.setRouter(PlatformRouter.load(platforms, CircuitBreaker::new, 1));
+            CsvToApiConversionApplication.runSync(CsvToApiConversionApplication.parseArgs(args), multi::add);
+        } finally {
+            QualysApi.setRouter(previous);
+            Files.deleteIfExists(platforms);
+            Files.deleteIfExists(Paths.get("CsvToApiConversion.txt"));
+        }
+
+        single.removeIf(line -> !line.startsWith("[DRY RUN]"));
+        List<String> dispatched = new ArrayList<>(multi);
+        dispatched.removeIf(line -> !line.startsWith("[DRY RUN]"));
+        assertFalse(single.isEmpty());
+        Collections.sort(single);
+        Collections.sort(dispatched);
+        assertEquals(single, dispatched);
+    }
+
+    @Test
+    void testRunSync_ShardedDryRunsSendEveryOperationOnce() throws IOException {
+        Path dir = Files.createTempDirectory("test-shards");
+        String[] args = {"src/main/resources/sample.csv", "01/01/2000 12:00:00 AM", "true",
+            "--rejects-file", dir.resolve("run.rejects").toString()};
+        List<String> unsharded = new ArrayList<>();
+        List<String> sharded = new ArrayList<>();
+        try {
+            CsvToApiConversionApplication.runSync(CsvToApiConversionApplication.parseArgs(args), unsharded::add);
+            for (int i = 0; i < 3; i++) {
+                String[] shardArgs = Arrays.copyOf(args, args.length + 1);
+                shardArgs[args.length] = "--shard=" + i + "/3";
+                CsvToApiConversionApplication.runSync(CsvToApiConversionApplication.parseArgs(shardArgs), sharded::add);
+                assertTrue(Files.exists(Paths.get("CsvToApiConversion.shard-" + i + "-of-3.txt")));
+            }
+            Files.delete(Paths.get("CsvToApiConversion.txt"));
+            assertTrue(CsvToApiConversionApplication.runMerge(CsvToApiConversionApplication.parseArgs(new String[]{
+                "merge", "--shards=3", "--rejects-file", dir.resolve("run.rejects").toString()})));
+            assertTrue(Files.exists(Paths.get("CsvToApiConversion.txt")));
+            assertFalse(Files.exists(Paths.get("CsvToApiConversion.shard-0-of-3.txt")));
+        } finally {
+            for (int i = 0; i < 3; i++) {
+                Files.deleteIfExists(Paths.get("CsvToApiConversion.shard-" + i + "-of-3.txt"));
+            }
+            Files.deleteIfExists(Paths.get("CsvToApiConversion.txt"));
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+
+        unsharded.removeIf(line -> !line.startsWith("[DRY RUN]"));
+        sharded.removeIf(line -> !line.startsWith("[DRY RUN]"));
+        assertFalse(unsharded.isEmpty());
+        Collections.sort(unsharded);
+        Collections.sort(sharded);
+        assertEquals(unsharded, sharded);
+    }
+
+    @Test
+    void testWriteStartTimestamp_neverMovesBackwards() throws IOException {
+        Path file = Files.createTempFile("test-timestamp", ".txt");
+        try {
+            LocalDateTime later = LocalDateTime.of(2025, 5, 14, 9, 0);
+            CsvToApiConversionApplication.writeStartTimestamp(file, later);
+            CsvToApiConversionApplication.writeStartTimestamp(file, later.minusHours(1));
+            assertEquals(later.toString(), Files.readString(file));
+            CsvToApiConversionApplication.writeStartTimestamp(file, later.plusHours(1));
+            assertEquals(later.plusHours(1).toString(), Files.readString(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testRunMerge_waitsForEveryShardBeforeUpdatingTimestamp() throws IOException {
+        Path dir = Files.createTempDirectory("test-merge");
+        Path deadLetters = dir.resolve("run.deadletter");
+        Path rejects = dir.resolve("run.rejects");
+        var config = CsvToApiConversionApplication.parseArgs(new String[]{"merge", "--shards=2",
+            "--dead-letter-file", deadLetters.toString(), "--rejects-file", rejects.toString()});
+        Shard first = new Shard(0, 2);
+        Shard second = new Shard(1, 2);
+        GroupOperation op = new GroupOperation("owner", "Platform", "42", "add", new String[]{"10.0.0.1"});
+        try {
+            DeadLetter.write(first.file(deadLetters), List.of(new DeadLetter(op, "TIMEOUT", 1)));
+            Files.write(first.file(rejects), List.of("# line\tasset\tvalue\treason", "12\tA12\tbad\tinvalid", "3\tA3\t\tempty"));
+            Files.write(second.file(rejects), List.of("# line\tasset\tvalue\treason", "3\tA3\t\tempty", "7\tA7\tx\tinvalid"));
+            Files.writeString(first.file(Paths.get("CsvToApiConversion.txt")), "2025-05-14T08:30");
+
+            assertFalse(CsvToApiConversionApplication.runMerge(config));
+            assertEquals(1, DeadLetter.read(deadLetters).size());
+            assertFalse(Files.exists(first.file(deadLetters)));
+            assertEquals(List.of("# line\tasset\tvalue\treason", "3\tA3\t\tempty", "7\tA7\tx\tinvalid", "12\tA12\tbad\tinvalid"),
+                Files.readAllLines(rejects));
+            assertFalse(Files.exists(Paths.get("CsvToApiConversion.txt")));
+
+            Files.writeString(second.file(Paths.get("CsvToApiConversion.txt")), "2025-05-14T08:00");
+            assertTrue(CsvToApiConversionApplication.runMerge(config));
+            assertEquals("2025-05-14T08:00", Files.readString(Paths.get("CsvToApiConversion.txt")));
+            assertFalse(Files.exists(first.file(Paths.get("CsvToApiConversion.txt"))));
+            assertEquals(1, DeadLetter.read(deadLetters).size());
+        } finally {
+            Files.deleteIfExists(first.file(Paths.get("CsvToApiConversion.txt")));
+            Files.deleteIfExists(second.file(Paths.get("CsvToApiConversion.txt")));
+            Files.deleteIfExists(Paths.get("CsvToApiConversion.txt"));
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
     // Helper to invoke private static parseArgs
     private static Object invokeParseArgs(String[] args) {
         try {
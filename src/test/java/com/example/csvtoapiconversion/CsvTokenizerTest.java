@@ -0,0 +1,69 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTokenizerTest {
+
+    /**
+     * Tokenizes the input and returns each record as "lineNumber:[field, ...]".
+     */
+    private static List<String> tokenize(String input, int bufferSize) throws IOException {
+        List<String> records = new ArrayList<>();
+        CsvTokenizer tokenizer = new CsvTokenizer(DelimiterScanner.create(), bufferSize);
+        tokenizer.tokenize(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+            record -> records.add(record.toString()));
+        return records;
+    }
+
+    @Test
+    void testTokenize_recordsAndFields() throws IOException {
+        List<String> records = tokenize("a,b,c\n\nd, e \r\nf", 64);
+        assertEquals(List.of("1:[a, b, c]", "2:[]", "3:[d, e]", "4:[f]"), records);
+    }
+
+    @Test
+    void testTokenize_quotedFields() throws IOException {
+        List<String> records = tokenize("\"x,y\",\"say \"\"hi\"\"\",plain\n\"multi\nline\",z\nlast,row\n", 64);
+        assertEquals(List.of("1:[x,y, say \"hi\", plain]", "2:[multi\nline, z]", "4:[last, row]"), records);
+    }
+
+    @Test
+    void testTokenize_rawBoundsExcludeQuotes() throws IOException {
+        List<int[]> bounds = new ArrayList<>();
+        List<Boolean> escaped = new ArrayList<>();
+        new CsvTokenizer().tokenize(new ByteArrayInputStream(" \"a,b\" ,\"c\"\"d\"".getBytes(StandardCharsets.UTF_8)), record -> {
+            for (int i = 0; i < record.size(); i++) {
+                bounds.add(new int[]{record.start(i), record.end(i)});
+                escaped.add(record.isEscaped(i));
+            }
+        });
+        assertArrayEquals(new int[]{2, 5}, bounds.get(0));
+        assertArrayEquals(new int[]{9, 13}, bounds.get(1));
+        assertEquals(List.of(false, true), escaped);
+    }
+
+    @Test
+    void testTokenize_recordsAcrossChunksAndLongerThanBuffer() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            String filler = "x".repeat(i);
+            sb.append("asset").append(i).append(",\"contact, ").append(i).append("\",").append(filler).append(",10.0.0.").append(i).append('\n');
+            expected.add(i + ":[asset" + i + ", contact, " + i + ", " + filler + ", 10.0.0." + i + "]");
+        }
+
+        assertEquals(expected, tokenize(sb.toString(), 16));
+    }
+
+    @Test
+    void testTokenize_nonAsciiRecordsUseCharOffsets() throws IOException {
+        List<String> records = tokenize("ä,\"Müller, K\",ß\nx,y\n", 64);
+        assertEquals(List.of("1:[ä, Müller, K, ß]", "2:[x, y]"), records);
+    }
+}
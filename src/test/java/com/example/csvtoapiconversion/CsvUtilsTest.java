@@ -73,6 +73,140 @@ class CsvUtilsTest {
         assertTrue(ownerToDeactivatedIps.get("Owner2").contains("2.2.2.2"));
     }
 
+    @Test
+    void testProcessCsv_groupIndexesShareNamesAcrossRows() throws IOException {
+        Files.write(tempCsv, Arrays.asList(
+            "Asset, Contact ,Owner,1.1.1.1, 3.3.3.3 ,05/01/2025 08:00:00 AM,",
+            "Asset2,Contact,Owner,2.2.2.2,05/01/2025 09:00:00 AM,",
+            "too,few,columns"
+        ));
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+
+        CsvUtils.processCsv(tempCsv, null, owners, contacts);
+
+        assertEquals(1, owners.size());
+        assertEquals(1, contacts.size());
+        assertEquals("Contact", contacts.name(0));
+        assertEquals(Set.of("1.1.1.1", "2.2.2.2", "3.3.3.3"), owners.getActiveIps(0));
+        assertNull(owners.getDeactivatedIps(0));
+    }
+
+    @Test
+    void testProcessCsv_filteredGroupsCollectNoIps() throws IOException {
+        Files.write(tempCsv, Arrays.asList(
+            "Asset,Contact,Owner,1.1.1.1,05/01/2025 08:00:00 AM,",
+            "Asset2,Contact2,Owner2,2.2.2.2,bad,05/01/2025 09:00:00 AM,",
+            "Asset3,Contact2,Owner,3.3.3.3,05/01/2025 09:00:00 AM,"
+        ));
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        owners.setFilter(name -> name.equals("Owner"));
+        contacts.setFilter(name -> false);
+        List<String> rejects = new ArrayList<>();
+
+        CsvUtils.processCsv(tempCsv, null, owners, contacts, rejects);
+
+        assertEquals(Map.of("Owner", Set.of("1.1.1.1", "3.3.3.3")), owners.toActiveMap());
+        assertEquals(Map.of(), contacts.toActiveMap());
+        // The second row belongs to no selected group, so its names are not interned and its IPs not checked
+        assertEquals(-1, owners.lookup("Owner2"));
+        // Rows kept for their owner do not intern the rejected contacts either
+        assertEquals(0, contacts.size());
+        assertEquals(List.of(), rejects);
+    }
+
+    @Test
+    void testProcessCsv_groupFiltersRunBeforeTimestampParsing() throws IOException {
+        Files.write(tempCsv, Arrays.asList(
+            "Asset,Contact,Owner,1.1.1.1,05/01/2025 08:00:00 AM,",
+            "Asset2,\"Contact, Two\",Owner2,2.2.2.2,yesterday,",
+            "Asset3,Contact3,Owner3,3.3.3.3,05/01/2025 09:00:00 AM,"
+        ));
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        List<String> asked = new ArrayList<>();
+        owners.setFilter(name -> asked.add(name) && !name.equals("Owner2"));
+        contacts.setFilter(name -> !name.equals("Contact, Two"));
+
+        // The unparseable timestamp of the second row is never read
+        CsvUtils.processCsv(tempCsv, LocalDateTime.of(2025, 5, 1, 8, 30), CsvSchema.positional(), owners, contacts, new ArrayList<>());
+
+        assertEquals(Map.of("Owner3", Set.of("3.3.3.3")), owners.toActiveMap());
+        assertEquals(Map.of("Contact3", Set.of("3.3.3.3")), contacts.toActiveMap());
+        // Once per name, including the first row that the start timestamp skips
+        assertEquals(List.of("Owner", "Owner2", "Owner3"), asked);
+        assertEquals(-1, owners.lookup("Owner"));
+    }
+
+    @Test
+    void testProcessCsv_ipFilterDropsIpsOutsideTheBlocks() throws IOException {
+        Files.write(tempCsv, Arrays.asList(
+            "Asset,Contact,Owner,10.0.0.1;10.0.0.2,192.168.1.1,10.0.0.256,05/01/2025 08:00:00 AM,",
+            "Asset2,Contact2,Owner2,192.168.1.2,05/01/2025 09:00:00 AM,"
+        ));
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        List<String> rejects = new ArrayList<>();
+
+        CsvUtils.processCsv(tempCsv, null, CsvSchema.positional(), owners, contacts, rejects, false,
+            CidrFilter.parse("10.0.0.0/8", "10.0.0.2"));
+
+        assertEquals(Map.of("Owner", Set.of("10.0.0.1")), owners.toActiveMap());
+        assertEquals(Map.of("Contact", Set.of("10.0.0.1")), contacts.toActiveMap());
+        // Filtered IPs are not rejects; invalid ones still are
+        assertEquals(1, rejects.size());
+        assertTrue(rejects.get(0).contains("10.0.0.256"));
+    }
+
+    @Test
+    void testProcessCsv_rejectsInvalidIpsAndCanonicalizes() throws IOException {
+        Files.write(tempCsv, Arrays.asList(
+            "Asset,Contact,Owner,10.0.0.1,010.000.000.001,,server01,05/01/2025 08:00:00 AM,"
+        ));
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        List<String> rejects = new ArrayList<>();
+
+        CsvUtils.processCsv(tempCsv, null, owners, contacts, rejects);
+
+        assertEquals(Set.of("10.0.0.1"), owners.getActiveIps(0));
+        assertEquals(List.of("1\tAsset\t\tempty", "1\tAsset\tserver01\tinvalid"), rejects);
+    }
+
+    @Test
+    void testProcessCsv_headerDrivenWithQuotedFields() throws IOException {
+        Files.write(tempCsv, Arrays.asList(
+            "Location,Owner,Asset Name,Deactivated Timestamp,Notes,IP Addresses,Contact,Create Timestamp",
+            "\"Berlin, DE\",\"Ops \"\"Core\"\"\",SRV-1,,\"free text, with commas\",\"10.0.0.1, 10.0.0.2;bogus\",Lee,05/01/2025 08:00:00 AM",
+            "Paris,Web,SRV-2,05/02/2025 08:00:00 AM,\"multi",
+            "line note\",10.0.0.3,\"Lee\",05/01/2025 08:00:00 AM"
+        ));
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        List<String> rejects = new ArrayList<>();
+        CsvSchema schema = CsvSchema.header("Asset Name", "Contact", "Owner", List.of("IP Addresses"),
+            "Create Timestamp", "Deactivated Timestamp");
+
+        CsvUtils.processCsv(tempCsv, null, schema, owners, contacts, rejects);
+
+        assertEquals(Map.of("Ops \"Core\"", Set.of("10.0.0.1", "10.0.0.2")), owners.toActiveMap());
+        assertEquals(Map.of("Web", Set.of("10.0.0.3")), owners.toDeactivatedMap());
+        assertEquals(1, contacts.size());
+        assertEquals(List.of("2\tSRV-1\tbogus\tinvalid"), rejects);
+    }
+
+    @Test
+    void testProcessCsv_headerMissingColumn_throws() throws IOException {
+        Files.write(tempCsv, Arrays.asList("Asset Name,Contact,Owner,IPs,Created,Deactivated"));
+        CsvSchema schema = CsvSchema.header("Asset Name", "Contact", "Owner", List.of("IP Addresses"),
+            "Create Timestamp", "Deactivated Timestamp");
+
+        IOException e = assertThrows(IOException.class, () -> CsvUtils.processCsv(tempCsv, null, schema,
+            new GroupIndex("owner"), new GroupIndex("contact"), new ArrayList<>()));
+        assertTrue(e.getMessage().contains("IP Addresses"));
+    }
+
     @Test
     void testParseDate_valid() {
         LocalDateTime dt = CsvUtils.parseDate("05/01/2025 08:00:00 AM");
@@ -0,0 +1,65 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadLetterTest {
+
+    private Path tempFile;
+
+    @BeforeEach
+    void setup() throws IOException {
+        tempFile = Files.createTempFile("test-deadletter", ".deadletter");
+        Files.delete(tempFile);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    void testAppendRead_roundTripInOrder() throws IOException {
+        DeadLetter first = new DeadLetter(
+            new GroupOperation("owner", "Platform", "1234", "remove", new String[]{"10.0.0.1", "10.0.0.2"}), "1905", 1);
+        DeadLetter second = new DeadLetter(
+            new GroupOperation("contact", "Help\tdesk", null, "add", new String[]{"10.0.0.3"}), "REQUEST_FAILED", 2);
+
+        DeadLetter.append(tempFile, List.of(first));
+        DeadLetter.append(tempFile, List.of(second));
+        List<DeadLetter> read = DeadLetter.read(tempFile);
+
+        assertEquals(2, read.size());
+        assertEquals("1905", read.get(0).getErrorCode());
+        assertEquals(1, read.get(0).getAttempts());
+        assertEquals("1234", read.get(0).getOperation().getGroupId());
+        assertArrayEquals(new String[]{"10.0.0.1", "10.0.0.2"}, read.get(0).getOperation().getIps());
+        assertEquals("Help\tdesk", read.get(1).getOperation().getGroupName());
+        assertNull(read.get(1).getOperation().getGroupId());
+        assertEquals("add", read.get(1).getOperation().getAction());
+        assertEquals(2, read.get(1).getAttempts());
+    }
+
+    @Test
+    void testWrite_emptyListRemovesFile() throws IOException {
+        DeadLetter.append(tempFile, List.of(new DeadLetter(
+            new GroupOperation("owner", "QA", null, "add", new String[]{"10.0.0.1"}), "GROUP_NOT_FOUND", 1)));
+        assertTrue(Files.exists(tempFile));
+
+        DeadLetter.write(tempFile, List.of());
+
+        assertFalse(Files.exists(tempFile));
+        assertTrue(DeadLetter.read(tempFile).isEmpty());
+    }
+
+    @Test
+    void testRead_malformedLineThrows() throws IOException {
+        Files.writeString(tempFile, "owner\tQA\n");
+        assertThrows(IOException.class, () -> DeadLetter.read(tempFile));
+    }
+}
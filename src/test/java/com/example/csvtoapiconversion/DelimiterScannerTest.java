@@ -0,0 +1,55 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimiterScannerTest {
+
+    @Test
+    void testCreate_usesVectorScannerWhenModuleEnabled() {
+        DelimiterScanner scanner = DelimiterScanner.create();
+        boolean moduleEnabled = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        assertEquals(moduleEnabled, scanner instanceof VectorDelimiterScanner, scanner.getName());
+    }
+
+    @Test
+    void testScan_findsCommasNewlinesAndQuotes() {
+        byte[] buf = "a,b\nc,,\"d\"\n".getBytes(StandardCharsets.US_ASCII);
+        int[] positions = new int[buf.length];
+        DelimiterScanner scanner = new DelimiterScanner();
+
+        int count = scanner.scan(buf, 0, buf.length, positions);
+
+        assertArrayEquals(new int[]{1, 3, 5, 6, 7, 9, 10}, Arrays.copyOf(positions, count));
+        assertTrue(scanner.wasAscii());
+    }
+
+    @Test
+    void testScan_vectorMatchesScalar() {
+        Random random = new Random(42);
+        byte[] alphabet = "0123456789.,\n\r abc\"".getBytes(StandardCharsets.US_ASCII);
+        DelimiterScanner scalar = new DelimiterScanner();
+        DelimiterScanner fastest = DelimiterScanner.create();
+        for (int length : new int[]{0, 1, 31, 32, 33, 63, 64, 65, 1000, 4099}) {
+            byte[] buf = new byte[length];
+            for (int i = 0; i < length; i++) {
+                buf[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            if (length > 40) {
+                buf[length / 2] = (byte) 0xC3; // non-ASCII byte in the vector part
+            }
+            for (int from : new int[]{0, Math.min(3, length)}) {
+                int[] expected = new int[length];
+                int[] actual = new int[length];
+                int expectedCount = scalar.scan(buf, from, length, expected);
+                int actualCount = fastest.scan(buf, from, length, actual);
+                assertArrayEquals(Arrays.copyOf(expected, expectedCount), Arrays.copyOf(actual, actualCount), "length " + length);
+                assertEquals(scalar.wasAscii(), fastest.wasAscii(), "length " + length);
+            }
+        }
+    }
+}
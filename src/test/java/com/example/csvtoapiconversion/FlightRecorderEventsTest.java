@@ -0,0 +1,133 @@
+package com.example.csvtoapiconversion;
+
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    private static final Logger LOGGER = Logger.getLogger(FlightRecorderEventsTest.class.getName());
+
+    private Path tempCsv;
+    private Path tempRecording;
+
+    @BeforeEach
+    void setup() throws IOException {
+        tempCsv = Files.createTempFile("test-jfr", ".csv");
+        tempRecording = Files.createTempFile("test-jfr", ".jfr");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(ParsedSnapshot.pathFor(tempCsv));
+        Files.deleteIfExists(tempCsv);
+        Files.deleteIfExists(tempRecording);
+    }
+
+    /**
+     * Runs the action under a recording of the given events and returns what was recorded.
+     */
+    private List<RecordedEvent> record(IORunnable action, String... eventNames) throws IOException {
+        try (Recording recording = new Recording()) {
+            for (String name : eventNames) {
+                recording.enable(name).withThreshold(java.time.Duration.ZERO);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(tempRecording);
+        }
+        return RecordingFile.readAllEvents(tempRecording);
+    }
+
+    private interface IORunnable {
+        void run() throws IOException;
+    }
+
+    private List<RecordedEvent> parse(boolean snapshot) throws IOException {
+        return record(() -> CsvUtils.processCsv(tempCsv, null, CsvSchema.positional(),
+            new GroupIndex("owner"), new GroupIndex("contact"), new ArrayList<>(), snapshot),
+            "com.example.csvtoapiconversion.ParseBatch");
+    }
+
+    private static Map<String, Integer> rowsBySource(List<RecordedEvent> events) {
+        Map<String, Integer> rows = new TreeMap<>();
+        events.forEach(e -> rows.merge(e.getString("source"), e.getInt("rows"), Integer::sum));
+        return rows;
+    }
+
+    @Test
+    void testParseBatchEvents_coverEveryRow() throws IOException {
+        int rows = ParseBatchEvent.BATCH_ROWS + 100;
+        new CmdbGenerator(Map.of("rows", String.valueOf(rows))).write(tempCsv);
+
+        List<RecordedEvent> parsed = parse(false);
+        assertEquals(Map.of("csv", rows), rowsBySource(parsed));
+        assertEquals(List.of(0L, (long) ParseBatchEvent.BATCH_ROWS), parsed.stream().map(e -> e.getLong("firstRow")).sorted().toList());
+        // Building a snapshot parses the CSV, then replays the snapshot; reusing it only replays
+        assertEquals(Map.of("csv", rows, "snapshot", rows), rowsBySource(parse(true)));
+        assertEquals(Map.of("snapshot", rows), rowsBySource(parse(true)));
+    }
+
+    @Test
+    void testGroupLookupAndEditEvents() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/2.0/fo/asset/group/", exchange -> {
+            String body = "GET".equals(exchange.getRequestMethod())
+                ? "<ASSET_GROUP_LIST_OUTPUT><RESPONSE><ASSET_GROUP_LIST><ASSET_GROUP><ID>42</ID></ASSET_GROUP></ASSET_GROUP_LIST></RESPONSE></ASSET_GROUP_LIST_OUTPUT>"
+                : "<SIMPLE_RETURN><RESPONSE><CODE>1905</CODE><TEXT>Parameter has invalid value</TEXT></RESPONSE></SIMPLE_RETURN>";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        PlatformRouter previous = QualysApi.getRouter();
+        try {
+            QualysApi.setRouter(PlatformRouter.single(new QualysPlatform("local",
+                "http://127.0.0.1:" + server.getAddress().getPort(), "u", "p", 0, 0, new CircuitBreaker())));
+            String[] code = new String[1];
+            List<RecordedEvent> events = record(() -> code[0] = QualysApi.makeApiCall(
+                new GroupOperation("owner", "Platform", null, "add", new String[]{"10.0.0.1", "10.0.0.2"}), new ArrayList<>(), LOGGER),
+                "com.example.csvtoapiconversion.GroupLookup", "com.example.csvtoapiconversion.GroupEdit");
+            assertEquals("1905", code[0]);
+
+            RecordedEvent lookup = only(events, "com.example.csvtoapiconversion.GroupLookup");
+            assertEquals("local", lookup.getString("platform"));
+            assertEquals("Platform", lookup.getString("groupName"));
+            assertEquals("42", lookup.getString("groupId"));
+            assertEquals(200, lookup.getInt("httpStatus"));
+
+            RecordedEvent edit = only(events, "com.example.csvtoapiconversion.GroupEdit");
+            assertEquals("Platform", edit.getString("groupName"));
+            assertEquals("42", edit.getString("groupId"));
+            assertEquals("add", edit.getString("action"));
+            assertEquals(2, edit.getInt("ipCount"));
+            assertEquals(200, edit.getInt("httpStatus"));
+            assertEquals("1905", edit.getString("qualysCode"));
+            assertTrue(edit.getDuration().compareTo(edit.getDuration("queueTime")) >= 0);
+        } finally {
+            QualysApi.setRouter(previous);
+            server.stop(0);
+        }
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
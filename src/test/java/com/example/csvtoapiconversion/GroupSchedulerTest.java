@@ -0,0 +1,98 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupSchedulerTest {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupSchedulerTest.class.getName());
+
+    private static GroupOperation op(String type, String name, String action, int ipCount) {
+        String[] ips = new String[ipCount];
+        for (int i = 0; i < ipCount; i++) {
+            ips[i] = "10.0.0." + i;
+        }
+        return new GroupOperation(type, name, null, action, ips);
+    }
+
+    @Test
+    void testChains_groupByNameLargestFirst() {
+        List<GroupOperation> ops = List.of(
+            op("owner", "Small", "remove", 1),
+            op("owner", "Big", "remove", 2),
+            op("contact", "Big", "remove", 1),
+            op("owner", "Small", "add", 1),
+            op("owner", "Big", "add", 10),
+            op("contact", "Medium", "add", 5)
+        );
+
+        List<List<GroupOperation>> chains = GroupScheduler.chains(ops);
+
+        assertEquals(3, chains.size());
+        List<GroupOperation> big = chains.get(0);
+        assertEquals(List.of("remove", "remove", "add"), big.stream().map(GroupOperation::getAction).toList());
+        assertTrue(big.stream().allMatch(o -> o.getGroupName().equals("Big")));
+        assertEquals("Medium", chains.get(1).get(0).getGroupName());
+        assertEquals("Small", chains.get(2).get(0).getGroupName());
+    }
+
+    @Test
+    void testRun_removalFinishesBeforeAdditionOfSameGroup() {
+        List<GroupOperation> ops = new ArrayList<>();
+        for (int g = 0; g < 20; g++) {
+            ops.add(op("owner", "G" + g, "remove", 1 + g % 3));
+        }
+        for (int g = 0; g < 20; g++) {
+            ops.add(op("contact", "G" + g, "add", 1 + g % 5));
+        }
+        Map<String, List<String>> perGroup = new ConcurrentHashMap<>();
+        Set<String> running = ConcurrentHashMap.newKeySet();
+        List<String> overlaps = Collections.synchronizedList(new ArrayList<>());
+
+        GroupScheduler scheduler = new GroupScheduler(4, o -> {
+            if (!running.add(o.getGroupName())) overlaps.add(o.getGroupName());
+            perGroup.computeIfAbsent(o.getGroupName(), n -> Collections.synchronizedList(new ArrayList<>())).add(o.getAction());
+            Thread.onSpinWait();
+            running.remove(o.getGroupName());
+            return null;
+        }, LOGGER);
+        scheduler.run(ops);
+
+        assertTrue(overlaps.isEmpty(), "operations of one group ran concurrently: " + overlaps);
+        assertEquals(20, perGroup.size());
+        perGroup.values().forEach(actions -> assertEquals(List.of("remove", "add"), actions));
+        assertTrue(scheduler.getFailures().isEmpty());
+    }
+
+    @Test
+    void testRun_fatalErrorStopsAllChains() {
+        List<GroupOperation> ops = List.of(
+            op("owner", "Big", "remove", 5),
+            op("owner", "Big", "add", 5),
+            op("owner", "Small", "add", 1)
+        );
+        GroupScheduler scheduler = new GroupScheduler(1, o -> {
+            throw new QualysFatalErrorException("2000", "fatal");
+        }, LOGGER);
+
+        assertThrows(QualysFatalErrorException.class, () -> scheduler.run(ops));
+        List<DeadLetter> failures = scheduler.getFailures();
+        assertEquals(3, failures.size());
+        assertEquals(1, failures.stream().filter(f -> f.getAttempts() == 1).count());
+        assertTrue(failures.stream().allMatch(f -> "2000".equals(f.getErrorCode())));
+    }
+
+    @Test
+    void testRun_failedOperationsAreReported() {
+        GroupScheduler scheduler = new GroupScheduler(2, o -> "add".equals(o.getAction()) ? "GROUP_NOT_FOUND" : null, LOGGER);
+        scheduler.run(List.of(op("owner", "A", "remove", 1), op("owner", "A", "add", 1), op("owner", "B", "add", 2)));
+
+        assertEquals(2, scheduler.getFailures().size());
+        assertTrue(scheduler.getFailures().stream().allMatch(f -> "GROUP_NOT_FOUND".equals(f.getErrorCode())));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpAddressesTest {
+
+    @Test
+    void testCanonicalize_ipv4() {
+        assertEquals("192.168.1.1", IpAddresses.canonicalize("192.168.1.1"));
+        assertEquals("10.1.2.3", IpAddresses.canonicalize("010.001.002.003"));
+        assertEquals("0.0.0.0", IpAddresses.canonicalize("0.0.0.0"));
+        assertEquals("255.255.255.255", IpAddresses.canonicalize("255.255.255.255"));
+    }
+
+    @Test
+    void testCanonicalize_ipv4Invalid() {
+        assertNull(IpAddresses.canonicalize(""));
+        assertNull(IpAddresses.canonicalize("256.1.1.1"));
+        assertNull(IpAddresses.canonicalize("1.1.1"));
+        assertNull(IpAddresses.canonicalize("1.1.1.1.1"));
+        assertNull(IpAddresses.canonicalize("1..1.1"));
+        assertNull(IpAddresses.canonicalize("1.1.1.0001"));
+        assertNull(IpAddresses.canonicalize("10.0.0.0/8"));
+        assertNull(IpAddresses.canonicalize("host.example.com"));
+    }
+
+    @Test
+    void testCanonicalize_ipv6() {
+        assertEquals("2001:db8:85a3::8a2e:370:7334",
+            IpAddresses.canonicalize("2001:0db8:85a3:0000:0000:8a2e:0370:7334"));
+        assertEquals("2001:db8::1", IpAddresses.canonicalize("2001:DB8:0:0:0:0:0:1"));
+        assertEquals("::", IpAddresses.canonicalize("0:0:0:0:0:0:0:0"));
+        assertEquals("::1", IpAddresses.canonicalize("::0001"));
+        assertEquals("fe80::", IpAddresses.canonicalize("fe80::"));
+        // Only the longest zero run is compressed, a single zero group is not
+        assertEquals("2001:0:0:1::1", IpAddresses.canonicalize("2001:0:0:1:0:0:0:1"));
+        assertEquals("2001:db8:0:1:1:1:1:1", IpAddresses.canonicalize("2001:db8::1:1:1:1:1"));
+        assertEquals("::ffff:192.0.2.1", IpAddresses.canonicalize("::FFFF:c000:0201"));
+        assertEquals("64:ff9b::c000:201", IpAddresses.canonicalize("64:ff9b::192.0.2.1"));
+    }
+
+    @Test
+    void testCanonicalize_ipv6Invalid() {
+        assertNull(IpAddresses.canonicalize(":1"));
+        assertNull(IpAddresses.canonicalize("1::2::3"));
+        assertNull(IpAddresses.canonicalize("1:2:3:4:5:6:7"));
+        assertNull(IpAddresses.canonicalize("1:2:3:4:5:6:7:8:9"));
+        assertNull(IpAddresses.canonicalize("1:2:3:4:5:6:7:8::"));
+        assertNull(IpAddresses.canonicalize("12345::1"));
+        assertNull(IpAddresses.canonicalize("fe80::1%eth0"));
+        assertNull(IpAddresses.canonicalize("1:"));
+        assertNull(IpAddresses.canonicalize("g::1"));
+    }
+
+    @Test
+    void testCanonicalize_range() {
+        String line = "a, 010.0.0.1 ,b";
+        assertEquals("10.0.0.1", IpAddresses.canonicalize(line, 3, 12));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedSnapshotTest {
+
+    private Path tempCsv;
+
+    @BeforeEach
+    void setup() throws IOException {
+        tempCsv = Files.createTempFile("test-snapshot", ".csv");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(ParsedSnapshot.pathFor(tempCsv));
+        Files.deleteIfExists(tempCsv);
+    }
+
+    /**
+     * Everything processCsv produces, for comparing a parse with a snapshot replay.
+     */
+    private static List<Object> parse(Path csv, LocalDateTime start, CsvSchema schema, boolean snapshot) throws IOException {
+        return parse(csv, start, schema, snapshot, new GroupIndex("owner"), new GroupIndex("contact"), null);
+    }
+
+    private static List<Object> parse(Path csv, LocalDateTime start, CsvSchema schema, boolean snapshot,
+                                      GroupIndex owners, GroupIndex contacts, CidrFilter ipFilter) throws IOException {
+        List<String> rejects = new ArrayList<>();
+        CsvUtils.processCsv(csv, start, schema, owners, contacts, rejects, snapshot, ipFilter);
+        List<String> ownerOrder = new ArrayList<>();
+        for (int i = 0; i < owners.size(); i++) ownerOrder.add(owners.name(i));
+        List<String> contactOrder = new ArrayList<>();
+        for (int i = 0; i < contacts.size(); i++) contactOrder.add(contacts.name(i));
+        return List.of(ownerOrder, contactOrder, owners.toActiveMap(), owners.toDeactivatedMap(),
+            contacts.toActiveMap(), contacts.toDeactivatedMap(), rejects);
+    }
+
+    @Test
+    void testReplay_matchesParse() throws IOException {
+        Files.write(tempCsv, List.of(
+            "A1,Doe,Platform,192.168.1.1,05/14/2025 08:30:00 AM,05/14/2025 05:00:00 PM",
+            "A2,Smith,QA,010.0.0.1,not-an-ip,05/13/2025 09:00:00 AM,",
+            "A3,\"Brown, Jr\",\"Analytics \"\"East\"\"\",\"172.16.0.1;172.16.0.2\",,04/11/2023 07:00:00 PM",
+            "A4,Lee,Support,2001:0db8:85a3:0000:0000:8a2e:0370:7334,,05/15/2025 09:00:00 AM,",
+            "short,row",
+            "A5,Doe,QA,bad,,",
+            "A6,Gary,Backend,192.168.6.10,03/22/2023 10:15:00 AM,05/11/2025 07:00:00 PM"));
+
+        // The last start has a fraction of a second, and A2 was created in the same whole second
+        for (LocalDateTime start : Arrays.asList(null, LocalDateTime.of(2025, 5, 1, 0, 0), LocalDateTime.of(2025, 5, 14, 12, 0),
+                LocalDateTime.of(2025, 5, 13, 9, 0, 0, 500_000_000))) {
+            List<Object> expected = parse(tempCsv, start, CsvSchema.positional(), false);
+            Files.deleteIfExists(ParsedSnapshot.pathFor(tempCsv));
+            assertEquals(expected, parse(tempCsv, start, CsvSchema.positional(), true), "building, start " + start);
+            assertTrue(Files.exists(ParsedSnapshot.pathFor(tempCsv)));
+            assertEquals(expected, parse(tempCsv, start, CsvSchema.positional(), true), "reusing, start " + start);
+        }
+    }
+
+    @Test
+    void testReplay_matchesParseOnGeneratedInput() throws IOException {
+        new CmdbGenerator(Map.of("rows", "3000", "ips-per-row", "1-5", "ipv6-ratio", "0.1", "deactivated", "0.3", "header", "true")).write(tempCsv);
+        CsvSchema schema = CsvSchema.header(CsvSchema.DEFAULT_ASSET_COLUMN, CsvSchema.DEFAULT_CONTACT_COLUMN, CsvSchema.DEFAULT_OWNER_COLUMN,
+            List.of(CsvSchema.DEFAULT_IP_COLUMNS), CsvSchema.DEFAULT_CREATE_COLUMN, CsvSchema.DEFAULT_DEACTIVATED_COLUMN);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        List<Object> expected = parse(tempCsv, start, schema, false);
+        parse(tempCsv, null, schema, true);
+        assertEquals(expected, parse(tempCsv, start, schema, true));
+    }
+
+    @Test
+    void testReplay_matchesParseWithFilters() throws IOException {
+        new CmdbGenerator(Map.of("rows", "3000", "ips-per-row", "1-5", "ipv6-ratio", "0.1", "deactivated", "0.3")).write(tempCsv);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        CidrFilter ipFilter = CidrFilter.parse("10.0.0.0/9,2001:db8::/41", "10.0.0.0/12");
+
+        List<Object> expected = parse(tempCsv, start, CsvSchema.positional(), false, filtered("owner"), filtered("contact"), ipFilter);
+        // The snapshot is written unfiltered, so it serves other selections too
+        parse(tempCsv, null, CsvSchema.positional(), true);
+        assertEquals(expected, parse(tempCsv, start, CsvSchema.positional(), true, filtered("owner"), filtered("contact"), ipFilter));
+        assertNotEquals(parse(tempCsv, start, CsvSchema.positional(), false), expected);
+    }
+
+    @Test
+    void testReplay_invalidDateFailsOnlySelectedRows() throws IOException {
+        Files.write(tempCsv, List.of(
+            "A1,Doe,Platform,192.168.1.1,05/14/2025 08:30:00 AM,",
+            "A2,Smith,QA,192.168.1.2,yesterday,"));
+        // A2 belongs to neither selected group, so its date is never looked at
+        List<Object> expected = parse(tempCsv, null, CsvSchema.positional(), false,
+            selecting("owner", "Platform"), selecting("contact", "Doe"), null);
+        assertEquals(expected, parse(tempCsv, null, CsvSchema.positional(), true,
+            selecting("owner", "Platform"), selecting("contact", "Doe"), null));
+        assertTrue(Files.exists(ParsedSnapshot.pathFor(tempCsv)));
+
+        assertThrows(DateTimeException.class, () -> parse(tempCsv, null, CsvSchema.positional(), false));
+        assertThrows(DateTimeException.class, () -> parse(tempCsv, null, CsvSchema.positional(), true));
+    }
+
+    private static GroupIndex selecting(String groupType, String name) {
+        GroupIndex index = new GroupIndex(groupType);
+        index.setFilter(name::equals);
+        return index;
+    }
+
+    private static GroupIndex filtered(String groupType) {
+        GroupIndex index = new GroupIndex(groupType);
+        index.setFilter(name -> Shard.hash(name) % 3 == 0);
+        return index;
+    }
+
+    @Test
+    void testOpen_rejectsStaleSnapshots() throws IOException {
+        Files.write(tempCsv, List.of("A1,Doe,Platform,192.168.1.1,05/14/2025 08:30:00 AM,"));
+        parse(tempCsv, null, CsvSchema.positional(), true);
+        assertNotNull(ParsedSnapshot.open(tempCsv, CsvSchema.positional().key()));
+        assertNull(ParsedSnapshot.open(tempCsv, CsvSchema.header("a", "c", "o", List.of("i"), "cr", "d").key()));
+
+        // Same size and modification time, different contents: only the content hash tells
+        FileTime modified = Files.getLastModifiedTime(tempCsv);
+        Files.write(tempCsv, List.of("A1,Doe,Platform,192.168.1.2,05/14/2025 08:30:00 AM,"));
+        Files.setLastModifiedTime(tempCsv, modified);
+        assertNull(ParsedSnapshot.open(tempCsv, CsvSchema.positional().key()));
+
+        List<Object> result = parse(tempCsv, null, CsvSchema.positional(), true);
+        assertEquals(Map.of("Platform", Set.of("192.168.1.2")), result.get(2));
+
+        Files.write(ParsedSnapshot.pathFor(tempCsv), new byte[]{1, 2, 3});
+        assertNull(ParsedSnapshot.open(tempCsv, CsvSchema.positional().key()));
+    }
+
+    @Test
+    void testSkip_matchesStartTimestampFilter() {
+        long start = 1_000;
+        assertFalse(ParsedSnapshot.skip(ParsedSnapshot.NONE, 0, 0));
+        assertTrue(ParsedSnapshot.skip(start, 999, ParsedSnapshot.NONE));
+        assertTrue(ParsedSnapshot.skip(start, ParsedSnapshot.NONE, 999));
+        assertTrue(ParsedSnapshot.skip(start, 998, 999));
+        assertFalse(ParsedSnapshot.skip(start, 999, 1_000));
+        assertFalse(ParsedSnapshot.skip(start, 1_000, ParsedSnapshot.NONE));
+        assertFalse(ParsedSnapshot.skip(start, ParsedSnapshot.NONE, ParsedSnapshot.NONE));
+
+        // A start within a second is rounded up, so a row created in that second is before it
+        long subSecond = ParsedSnapshot.startSecond(LocalDateTime.of(2025, 5, 14, 8, 30, 0, 500_000_000));
+        long rowSecond = LocalDateTime.of(2025, 5, 14, 8, 30, 0).toEpochSecond(ZoneOffset.UTC);
+        assertTrue(ParsedSnapshot.skip(subSecond, rowSecond, ParsedSnapshot.NONE));
+        assertFalse(ParsedSnapshot.skip(subSecond, rowSecond + 1, ParsedSnapshot.NONE));
+        assertEquals(rowSecond, ParsedSnapshot.startSecond(LocalDateTime.of(2025, 5, 14, 8, 30, 0)));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.logging.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelinedDispatcherTest {
+
+    private static final Logger LOGGER = Logger.getLogger(PipelinedDispatcherTest.class.getName());
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private GroupIndex owners;
+    private GroupIndex contacts;
+
+    @BeforeEach
+    void setup() {
+        owners = new GroupIndex("owner");
+        contacts = new GroupIndex("contact");
+    }
+
+    private PipelinedDispatcher dispatcher(String sortedBy) {
+        PipelinedDispatcher dispatcher = new PipelinedDispatcher(sortedBy, 0, op -> {
+            executed.add(op.getAction() + " " + op.getGroupType() + " " + op.getGroupName() + " " + Arrays.toString(op.getIps()));
+            return null;
+        }, LOGGER);
+        owners.setListener(dispatcher);
+        contacts.setListener(dispatcher);
+        return dispatcher;
+    }
+
+    private void row(String owner, String contact, String ip, boolean active) {
+        int ownerId = owners.intern(owner, 0, owner.length());
+        int contactId = contacts.intern(contact, 0, contact.length());
+        String[] ips = {ip};
+        if (active) {
+            owners.addActive(ownerId, ips, 1);
+            contacts.addActive(contactId, ips, 1);
+        } else {
+            owners.addDeactivated(ownerId, ips, 1);
+            contacts.addDeactivated(contactId, ips, 1);
+        }
+    }
+
+    @Test
+    void testSortedInput_dispatchesGroupWhenKeyChanges() {
+        PipelinedDispatcher dispatcher = dispatcher("owner");
+        row("Alpha", "Lee", "10.0.0.1", true);
+        row("Alpha", "Lee", "10.0.0.2", false);
+        assertEquals(0, dispatcher.getSubmitted());
+
+        row("Beta", "Lee", "10.0.0.3", true);
+        // Alpha's last row has passed: its removal and addition are already submitted
+        assertEquals(2, dispatcher.getSubmitted());
+
+        dispatcher.complete(owners, contacts);
+        assertEquals(List.of(
+            "remove owner Alpha [10.0.0.2]",
+            "add owner Alpha [10.0.0.1]",
+            "remove contact Lee [10.0.0.2]",
+            "add owner Beta [10.0.0.3]",
+            "add contact Lee [10.0.0.1, 10.0.0.3]"
+        ), sortedIps(executed));
+        assertTrue(dispatcher.getFailures().isEmpty());
+    }
+
+    @Test
+    void testReappearingGroup_isSentAgainWithAllIps() {
+        PipelinedDispatcher dispatcher = dispatcher("owner");
+        row("Alpha", "Lee", "10.0.0.1", true);
+        row("Beta", "Lee", "10.0.0.2", true);
+        row("Alpha", "Lee", "10.0.0.1", false);
+
+        dispatcher.complete(owners, contacts);
+        assertEquals(List.of(
+            "add owner Alpha [10.0.0.1]",
+            "remove owner Alpha [10.0.0.1]",
+            "remove contact Lee [10.0.0.1]",
+            "add owner Alpha [10.0.0.1]",
+            "add owner Beta [10.0.0.2]",
+            "add contact Lee [10.0.0.1, 10.0.0.2]"
+        ), sortedIps(executed));
+    }
+
+    @Test
+    void testSameNameInOtherColumn_isSentAgain() {
+        PipelinedDispatcher dispatcher = dispatcher("owner");
+        row("Ops", "Lee", "10.0.0.1", true);
+        row("Web", "Ops", "10.0.0.1", false);
+
+        dispatcher.complete(owners, contacts);
+        // The contact removal must not win over the owner addition to the same Qualys group
+        assertEquals("add owner Ops [10.0.0.1]", executed.get(0));
+        assertEquals("add owner Ops [10.0.0.1]", executed.get(executed.size() - 2));
+    }
+
+    @Test
+    void testFatalError_parksRemainingOperations() {
+        PipelinedDispatcher dispatcher = new PipelinedDispatcher(null, 0, op -> {
+            throw new QualysFatalErrorException("1920", "fatal");
+        }, LOGGER);
+        owners.setListener(dispatcher);
+        contacts.setListener(dispatcher);
+        row("Alpha", "Lee", "10.0.0.1", true);
+
+        QualysFatalErrorException e = assertThrows(QualysFatalErrorException.class, () -> dispatcher.complete(owners, contacts));
+        assertEquals("1920", e.getErrorCode());
+        List<DeadLetter> failures = dispatcher.getFailures();
+        assertEquals(2, failures.size());
+        assertEquals(1, failures.get(0).getAttempts());
+        assertEquals(0, failures.get(1).getAttempts());
+        assertEquals("1920", failures.get(1).getErrorCode());
+    }
+
+    @Test
+    void testInvalidSortedBy_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new PipelinedDispatcher("asset", 0, op -> null, LOGGER));
+    }
+
+    /**
+     * IP sets are hash sets; sorts the IP list in each entry so the order is stable.
+     */
+    private static List<String> sortedIps(List<String> entries) {
+        List<String> result = new ArrayList<>();
+        for (String entry : entries) {
+            int open = entry.indexOf('[');
+            List<String> ips = new ArrayList<>(Arrays.asList(entry.substring(open + 1, entry.length() - 1).split(", ")));
+            Collections.sort(ips);
+            result.add(entry.substring(0, open) + ips);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlatformRouterTest {
+
+    private Path tempProperties;
+
+    @BeforeEach
+    void setup() throws IOException {
+        tempProperties = Files.createTempFile("test-platforms", ".properties");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(tempProperties);
+    }
+
+    private PlatformRouter load(String... lines) throws IOException {
+        Files.writeString(tempProperties, String.join("\n", lines));
+        return PlatformRouter.load(tempProperties, CircuitBreaker::new, 3);
+    }
+
+    @Test
+    void testRoute_firstMatchingRouteWins() throws IOException {
+        PlatformRouter router = load(
+            "platforms=us1,eu1,in1",
+            "default=us1",
+            "us1.url=https://qualysapi.qualys.com",
+            "eu1.url=https://qualysapi.qualys.eu/",
+            "eu1.concurrency=5",
+            "us1.adaptive-concurrency=2-6",
+            "in1.url=https://qualysapi.qg1.apps.qualys.in",
+            "route.2=in1 * .*-IN",
+            "route.1=eu1 owner EMEA-.*",
+            "route.10=eu1 contact .*\\\\.de");
+
+        assertEquals("eu1", router.route("owner", "EMEA-IN").getName());
+        assertEquals("in1", router.route("contact", "EMEA-IN").getName());
+        assertEquals("eu1", router.route("contact", "mueller.de").getName());
+        assertEquals("us1", router.route("owner", "mueller.de").getName());
+        assertEquals("us1", router.route("owner", "Platform").getName());
+        assertEquals("https://qualysapi.qualys.eu/api/2.0/fo/asset/group/", router.route("owner", "EMEA-1").getAssetGroupUrl());
+        assertEquals(5, router.route("owner", "EMEA-1").getConcurrency());
+        assertEquals(6, router.getDefaultPlatform().getConcurrency());
+        assertNull(router.route("owner", "EMEA-1").getAdaptiveLimiter());
+        assertEquals(3, router.getPlatforms().size());
+    }
+
+    @Test
+    void testRoute_platformsHaveTheirOwnBreakers() throws IOException {
+        PlatformRouter router = load(
+            "platforms=us1,eu1",
+            "us1.url=https://qualysapi.qualys.com",
+            "eu1.url=https://qualysapi.qualys.eu");
+        assertEquals("us1", router.getDefaultPlatform().getName());
+        assertNotSame(router.getPlatforms().get(0).getCircuitBreaker(), router.getPlatforms().get(1).getCircuitBreaker());
+    }
+
+    @Test
+    void testLoad_rejectsInvalidConfiguration() {
+        assertThrows(IOException.class, () -> load("platforms="));
+        assertThrows(IOException.class, () -> load("platforms=us1"));
+        assertThrows(IOException.class, () -> load("platforms=us1", "us1.url=https://a", "default=eu1"));
+        assertThrows(IOException.class, () -> load("platforms=us1", "us1.url=https://a", "route.1=eu1 owner .*"));
+        assertThrows(IOException.class, () -> load("platforms=us1", "us1.url=https://a", "route.1=us1 asset .*"));
+        assertThrows(IOException.class, () -> load("platforms=us1", "us1.url=https://a", "route.1=us1 owner ("));
+        assertThrows(IOException.class, () -> load("platforms=us1", "us1.url=https://a", "us1.adaptive-concurrency=4"));
+        assertThrows(IOException.class, () -> load("platforms=us1", "us1.url=https://a", "us1.password-env=CSVTOAPI_TEST_UNSET_VARIABLE"));
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.csvtoapiconversion;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.*;
 import java.util.logging.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -10,6 +15,12 @@ class QualysApiTest {
 
     private static final Logger LOGGER = Logger.getLogger(QualysApiTest.class.getName());
 
+    @BeforeEach
+    void resetCircuitBreaker() {
+        // Other tests may have tripped the shared breaker with failing requests
+        QualysApi.setCircuitBreaker(new CircuitBreaker());
+    }
+
     @Test
     void testMakeApiCallThrowsOnInvalidAction() {
         List<String> errors = new ArrayList<>();
@@ -20,7 +31,7 @@ class QualysApiTest {
     }
 
     @Test
-    void testMakeApiCallGroupNotFound() {
+    void testMakeApiCallGroupNotFound() throws IOException {
         List<String> errors = new ArrayList<>();
         Logger logger = Logger.getLogger("TestLogger");
         // Override lookupQualysGroupId to always return null for this test
@@ -31,11 +42,152 @@ class QualysApiTest {
         };
         // Use reflection to call the static method with the overridden version
         // But since lookupQualysGroupId is private static, we can't override it directly.
-        // So, we just call the real method and expect GROUP_NOT_FOUND in errors.
-        api.makeApiCall("add", "nonexistent-group", new String[]{"1.2.3.4"}, errors, logger);
+        // So, we call the real method against a stub that lists no groups and expect GROUP_NOT_FOUND in errors.
+        withStub(new CircuitBreaker(), 200, NOT_FOUND, 200, "",
+            () -> {
+                api.makeApiCall("add", "nonexistent-group", new String[]{"1.2.3.4"}, errors, logger);
+                return null;
+            });
         assertTrue(errors.stream().anyMatch(e -> e.contains("GROUP_NOT_FOUND")));
     }
 
+    @Test
+    void testMakeApiCallOperationReturnsFailureCode() {
+        List<String> errors = new ArrayList<>();
+        GroupOperation op = new GroupOperation("owner", "nonexistent-group", null, "add", new String[]{"1.2.3.4"});
+        String code = QualysApi.makeApiCall(op, errors, LOGGER);
+        // The default platform rejects the test credentials, or cannot be reached at all
+        assertEquals("REQUEST_FAILED", code);
+        assertTrue(errors.contains("REQUEST_FAILED:nonexistent-group"));
+    }
+
+    @Test
+    void testMakeApiCallFailsFastWhenCircuitOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 0.5, 60_000, 1, System::nanoTime);
+        breaker.tryAcquirePermission();
+        breaker.onFailure();
+        QualysApi.setCircuitBreaker(breaker);
+
+        List<String> errors = new ArrayList<>();
+        GroupOperation op = new GroupOperation("owner", "any-group", null, "add", new String[]{"1.2.3.4"});
+        assertEquals("CIRCUIT_OPEN", QualysApi.makeApiCall(op, errors, LOGGER));
+        assertTrue(errors.contains("CIRCUIT_OPEN:any-group"));
+    }
+
+    /**
+     * Adds an IP to the owner group "Platform" through {@link #withStub}.
+     */
+    private static String callStub(CircuitBreaker breaker, int lookupStatus, String lookupBody,
+                                   int editStatus, String editBody) throws IOException {
+        GroupOperation op = new GroupOperation("owner", "Platform", null, "add", new String[]{"10.0.0.1"});
+        return withStub(breaker, lookupStatus, lookupBody, editStatus, editBody,
+            () -> QualysApi.makeApiCall(op, new ArrayList<>(), LOGGER));
+    }
+
+    /**
+     * Runs the call with all groups routed to a local Qualys stub that answers group lookups
+     * (GET) and edits (POST) with the given status and body.
+     */
+    private static String withStub(CircuitBreaker breaker, int lookupStatus, String lookupBody,
+                                   int editStatus, String editBody, Supplier<String> call) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/2.0/fo/asset/group/", exchange -> {
+            boolean lookup = "GET".equals(exchange.getRequestMethod());
+            byte[] bytes = (lookup ? lookupBody : editBody).getBytes(StandardCharsets.UTF_8);
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(lookup ? lookupStatus : editStatus, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        PlatformRouter previous = QualysApi.getRouter();
+        try {
+            QualysApi.setRouter(PlatformRouter.single(new QualysPlatform("local",
+                "http://127.0.0.1:" + server.getAddress().getPort(), "u", "p", 0, 0, breaker)));
+            return call.get();
+        } finally {
+            QualysApi.setRouter(previous);
+            server.stop(0);
+        }
+    }
+
+    private static final String FOUND = "<ASSET_GROUP_LIST_OUTPUT><RESPONSE><ASSET_GROUP_LIST><ASSET_GROUP><ID>42</ID></ASSET_GROUP></ASSET_GROUP_LIST></RESPONSE></ASSET_GROUP_LIST_OUTPUT>";
+    private static final String NOT_FOUND = "<ASSET_GROUP_LIST_OUTPUT><RESPONSE></RESPONSE></ASSET_GROUP_LIST_OUTPUT>";
+
+    @Test
+    void testMakeApiCall_clientErrorsDoNotTripTheBreaker() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 0.5, 60_000, 1, System::nanoTime);
+        assertEquals("REQUEST_FAILED", callStub(breaker, 401, "Unauthorized", 200, ""));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // The Qualys error code in the body of an error response is still recognized
+        String error = "<SIMPLE_RETURN><RESPONSE><CODE>1905</CODE><TEXT>Parameter has invalid value</TEXT></RESPONSE></SIMPLE_RETURN>";
+        assertEquals("1905", callStub(breaker, 200, FOUND, 400, error));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testResolveGroupIds_failedLookupIsNotGroupNotFound() throws IOException {
+        SyncPlan plan = new SyncPlan(null, List.of(
+            new GroupOperation("owner", "Platform", null, "add", new String[]{"10.0.0.1"})));
+        List<String> errors = new ArrayList<>();
+        String groupId = withStub(new CircuitBreaker(), 401, "Unauthorized", 200, "",
+            () -> plan.resolveGroupIds(errors, LOGGER).getOperations().get(0).getGroupId());
+        assertNull(groupId);
+        assertEquals(List.of("REQUEST_FAILED:Platform"), errors);
+    }
+
+    @Test
+    void testMakeApiCall_serverErrorsTripTheBreaker() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 60_000, 1, System::nanoTime);
+        // The edit itself was sent, so it failed rather than being rejected by the breaker it tripped
+        assertEquals("REQUEST_FAILED", callStub(breaker, 200, FOUND, 503, "Service Unavailable"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals("CIRCUIT_OPEN", callStub(breaker, 200, FOUND, 200, ""));
+    }
+
+    @Test
+    void testMakeApiCall_groupNotFoundWhileHalfOpen() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 0.5, 0, 3, System::nanoTime);
+        breaker.tryAcquirePermission();
+        breaker.onFailure();
+
+        assertEquals("GROUP_NOT_FOUND", callStub(breaker, 200, NOT_FOUND, 200, ""));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void testMakeApiCall_reusesConnections() throws IOException {
+        Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/2.0/fo/asset/group/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            boolean lookup = "GET".equals(exchange.getRequestMethod());
+            byte[] bytes = (lookup ? FOUND : "Bad Request").getBytes(StandardCharsets.UTF_8);
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(lookup ? 200 : 400, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        PlatformRouter previous = QualysApi.getRouter();
+        try {
+            QualysApi.setRouter(PlatformRouter.single(new QualysPlatform("local",
+                "http://127.0.0.1:" + server.getAddress().getPort(), "u", "p", 0, 0, new CircuitBreaker())));
+            for (String group : List.of("Platform", "QA")) {
+                GroupOperation op = new GroupOperation("owner", group, null, "add", new String[]{"10.0.0.1"});
+                assertEquals("REQUEST_FAILED", QualysApi.makeApiCall(op, new ArrayList<>(), LOGGER));
+            }
+        } finally {
+            QualysApi.setRouter(previous);
+            server.stop(0);
+        }
+        // Two lookups and two failed edits, one after another, over a single connection
+        assertEquals(1, clientPorts.size(), "client ports: " + clientPorts);
+    }
+
     @Test
     void testMakeApiCallFatalErrorCodesExit() {
         // We can't actually call System.exit in a unit test, so we check the logic up to that point.
@@ -79,4 +231,56 @@ class QualysApiTest {
             fail("lookupQualysGroupId method should exist");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseAssetGroupList_readsIpSetsAndNextPage() throws Exception {
+        String xml = """
+            <?xml version="1.0" encoding="UTF-8" ?>
+            <ASSET_GROUP_LIST_OUTPUT>
+              <RESPONSE>
+                <ASSET_GROUP_LIST>
+                  <ASSET_GROUP>
+                    <ID>101</ID>
+                    <TITLE><![CDATA[alice]]></TITLE>
+                    <IP_SET>
+                      <IP>10.0.0.1</IP>
+                      <IP_RANGE>10.0.1.1-10.0.1.10</IP_RANGE>
+                    </IP_SET>
+                  </ASSET_GROUP>
+                  <ASSET_GROUP>
+                    <ID>102</ID>
+                  </ASSET_GROUP>
+                </ASSET_GROUP_LIST>
+                <WARNING>
+                  <CODE>1980</CODE>
+                  <TEXT>1 record limit exceeded. Use URL to get next batch of results.</TEXT>
+                  <URL><![CDATA[https://qualysapi.qualys.com/api/2.0/fo/asset/group/?action=list&id_min=103]]></URL>
+                </WARNING>
+              </RESPONSE>
+            </ASSET_GROUP_LIST_OUTPUT>
+            """.strip();
+        Map<String, GroupMembership> memberships = new HashMap<>();
+
+        String next = QualysApi.parseAssetGroupList(new java.io.ByteArrayInputStream(xml.getBytes(java.nio.charset.StandardCharsets.UTF_8)), memberships);
+
+        assertEquals("https://qualysapi.qualys.com/api/2.0/fo/asset/group/?action=list&id_min=103", next);
+        assertEquals(Set.of("101", "102"), memberships.keySet());
+        assertTrue(memberships.get("101").contains("10.0.0.1"));
+        assertTrue(memberships.get("101").contains("10.0.1.7"));
+        assertFalse(memberships.get("101").contains("10.0.1.11"));
+        assertEquals(0, memberships.get("102").size());
+    }
+
+    @Test
+    void testParseAssetGroupList_lastPageAndMalformedResponse() throws Exception {
+        Map<String, GroupMembership> memberships = new HashMap<>();
+        String lastPage = "<ASSET_GROUP_LIST_OUTPUT><RESPONSE><ASSET_GROUP_LIST/></RESPONSE></ASSET_GROUP_LIST_OUTPUT>";
+        assertNull(QualysApi.parseAssetGroupList(new java.io.ByteArrayInputStream(lastPage.getBytes()), memberships));
+
+        // A truncated response must not yield the group it was in the middle of
+        String truncated = "<ASSET_GROUP_LIST_OUTPUT><RESPONSE><ASSET_GROUP_LIST><ASSET_GROUP><ID>101</ID><IP_SET><IP>10.0.0.1</IP>";
+        assertThrows(java.io.IOException.class,
+            () -> QualysApi.parseAssetGroupList(new java.io.ByteArrayInputStream(truncated.getBytes()), memberships));
+        assertTrue(memberships.isEmpty());
+    }
+}
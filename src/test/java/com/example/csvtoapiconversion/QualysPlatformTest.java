@@ -0,0 +1,71 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QualysPlatformTest {
+
+    @Test
+    void testAcquire_capsRequestsInFlight() throws Exception {
+        QualysPlatform platform = new QualysPlatform("us1", "https://qualysapi.qualys.com", "u", "p", 2, 0, new CircuitBreaker());
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        for (int i = 0; i < 30; i++) {
+            pool.execute(() -> {
+                long startedAt = platform.acquire();
+                try {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                    platform.release(startedAt, false);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void testAcquire_adaptiveLimiterReplacesFixedCap() {
+        QualysPlatform platform = new QualysPlatform("us1", "https://qualysapi.qualys.com", "u", "p", 2, 0, new CircuitBreaker());
+        platform.setAdaptiveLimiter(new AdaptiveLimiter("us1", 3, 6));
+        assertEquals(6, platform.getConcurrency());
+        // Three requests fit under the adaptive limit although the fixed cap is 2
+        long[] started = {platform.acquire(), platform.acquire(), platform.acquire()};
+        for (long startedAt : started) {
+            platform.release(startedAt, true);
+        }
+        assertEquals(3, platform.getAdaptiveLimiter().getLimit());
+    }
+
+    @Test
+    void testAcquire_pacesRequestRate() {
+        QualysPlatform platform = new QualysPlatform("us1", "https://qualysapi.qualys.com", "u", "p", 0, 100, new CircuitBreaker());
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            platform.release(platform.acquire(), false);
+        }
+        // 11 requests at 100 per second: the last one starts 100 ms after the first
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(95));
+    }
+
+    @Test
+    void testGroupIdCache() {
+        QualysPlatform platform = new QualysPlatform("us1", "https://qualysapi.qualys.com/", "u", "p", 0, 0, new CircuitBreaker());
+        assertNull(platform.cachedGroupId("Platform", Long.MAX_VALUE));
+        platform.cacheGroupId("Platform", "42");
+        assertEquals("42", platform.cachedGroupId("Platform", Long.MAX_VALUE));
+        assertNull(platform.cachedGroupId("Platform", 0));
+        assertEquals("https://qualysapi.qualys.com/api/2.0/fo/asset/group/", platform.getAssetGroupUrl());
+        assertEquals("Basic dTpw", platform.getAuthorization());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardTest {
+
+    @Test
+    void testOwns_everyGroupBelongsToExactlyOneShard() {
+        int[] groupsPerShard = new int[4];
+        for (int g = 0; g < 10_000; g++) {
+            String name = "Team-" + g;
+            int owners = 0;
+            for (int i = 0; i < 4; i++) {
+                if (new Shard(i, 4).owns(name)) {
+                    owners++;
+                    groupsPerShard[i]++;
+                }
+            }
+            assertEquals(1, owners, name);
+        }
+        for (int count : groupsPerShard) {
+            assertTrue(count > 2_300 && count < 2_700, "uneven shards: " + count);
+        }
+    }
+
+    @Test
+    void testHash_isStable() {
+        // Pinned: workers on other machines and JVM versions must agree
+        assertEquals(0x811c9dc5, Shard.hash(""));
+        assertEquals(0xb25912da, Shard.hash("Platform"));
+        assertEquals(0xc48fef4b, Shard.hash("Doe"));
+        assertTrue(new Shard(2, 4).owns("Platform"));
+        assertTrue(new Shard(3, 4).owns("Doe"));
+    }
+
+    @Test
+    void testParseAndFile() {
+        Shard shard = Shard.parse("1/4");
+        assertEquals(1, shard.getIndex());
+        assertEquals(4, shard.getCount());
+        assertEquals(Paths.get("CsvToApiConversion.shard-1-of-4.txt"), shard.file(Paths.get("CsvToApiConversion.txt")));
+        assertEquals(Paths.get("out", "failed.shard-1-of-4"), shard.file(Paths.get("out", "failed")));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("4"));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("4/4"));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("-1/4"));
+        assertThrows(IllegalArgumentException.class, () -> Shard.parse("0/0"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+
+    @Test
+    void testIntern_assignsDenseIdsAndReusesThem() {
+        SymbolTable table = new SymbolTable();
+        String line = "Asset,Helpdesk,Platform,1.1.1.1";
+        int helpdesk = table.intern(line, 6, 14);
+        int platform = table.intern(line, 15, 23);
+
+        assertEquals(0, helpdesk);
+        assertEquals(1, platform);
+        assertEquals(helpdesk, table.intern("Helpdesk"));
+        assertEquals(platform, table.intern("x,Platform,y", 2, 10));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testName_materializesOriginalCharacters() {
+        SymbolTable table = new SymbolTable();
+        int id = table.intern("a,DevOps-Support,b", 2, 16);
+        assertEquals("DevOps-Support", table.name(id));
+        assertSame(table.name(id), table.name(id));
+    }
+
+    @Test
+    void testLookup_unknownNameReturnsMinusOne() {
+        SymbolTable table = new SymbolTable();
+        table.intern("Owner");
+        assertEquals(-1, table.lookup("Other"));
+        assertEquals(0, table.lookup("Owner"));
+        assertEquals(0, table.lookup("Asset,Owner,10.0.0.1", 6, 11));
+        assertEquals(-1, table.lookup("Asset,Owner,10.0.0.1", 6, 10));
+    }
+
+    @Test
+    void testIntern_survivesRehashWithManyNames() {
+        SymbolTable table = new SymbolTable();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, table.intern("group-" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, table.lookup("group-" + i));
+            assertEquals("group-" + i, table.name(i));
+        }
+    }
+}
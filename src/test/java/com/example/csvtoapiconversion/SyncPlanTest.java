@@ -0,0 +1,121 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.logging.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncPlanTest {
+
+    private Path tempPlan;
+
+    @BeforeEach
+    void setup() throws IOException {
+        tempPlan = Files.createTempFile("test-syncplan", ".plan");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(tempPlan);
+    }
+
+    @Test
+    void testBuild_removalsBeforeAdditions() {
+        GroupIndex owners = new GroupIndex("owner");
+        GroupIndex contacts = new GroupIndex("contact");
+        int owner = owners.intern("Platform", 0, 8);
+        int contact = contacts.intern("Helpdesk", 0, 8);
+        owners.addActive(owner, new String[]{"1.1.1.1"}, 1);
+        contacts.addDeactivated(contact, new String[]{"2.2.2.2"}, 1);
+
+        SyncPlan plan = SyncPlan.build(owners, contacts, LocalDateTime.of(2025, 5, 1, 8, 0));
+
+        List<GroupOperation> ops = plan.getOperations();
+        assertEquals(2, ops.size());
+        assertEquals("remove", ops.get(0).getAction());
+        assertEquals("Helpdesk", ops.get(0).getGroupName());
+        assertEquals("add", ops.get(1).getAction());
+        assertEquals("Platform", ops.get(1).getGroupName());
+    }
+
+    @Test
+    void testWriteRead_roundTrip() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 8, 0, 30);
+        List<GroupOperation> ops = List.of(
+            new GroupOperation("owner", "Platform", "1234", "remove", new String[]{"10.0.0.1", "10.0.0.2"}),
+            new GroupOperation("contact", "Helpdesk", null, "add", new String[]{"10.0.0.1"})
+        );
+
+        new SyncPlan(start, ops).write(tempPlan);
+        SyncPlan read = SyncPlan.read(tempPlan);
+
+        assertEquals(start, read.getAppStartTimestamp());
+        assertEquals(2, read.getOperations().size());
+        GroupOperation first = read.getOperations().get(0);
+        assertEquals("owner", first.getGroupType());
+        assertEquals("Platform", first.getGroupName());
+        assertEquals("1234", first.getGroupId());
+        assertEquals("remove", first.getAction());
+        assertArrayEquals(new String[]{"10.0.0.1", "10.0.0.2"}, first.getIps());
+        GroupOperation second = read.getOperations().get(1);
+        assertEquals("contact", second.getGroupType());
+        assertNull(second.getGroupId());
+        assertEquals("add", second.getAction());
+    }
+
+    @Test
+    void testRead_rejectsOtherFiles() throws IOException {
+        Files.writeString(tempPlan, "not a plan");
+        assertThrows(IOException.class, () -> SyncPlan.read(tempPlan));
+    }
+
+    @Test
+    void testReconcile_onlyChangesMembership() {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 8, 0, 30);
+        SyncPlan plan = new SyncPlan(start, List.of(
+            new GroupOperation("owner", "alice", "101", "remove", new String[]{"10.0.0.1", "10.0.0.2", "10.0.0.3"}),
+            new GroupOperation("owner", "alice", "101", "add", new String[]{"10.0.0.3", "10.0.0.4", "10.0.1.5"}),
+            new GroupOperation("contact", "alice", "101", "add", new String[]{"10.0.0.4", "10.0.0.6"}),
+            new GroupOperation("owner", "bob", "102", "add", new String[]{"10.0.0.7"}),
+            new GroupOperation("owner", "carol", null, "add", new String[]{"10.0.0.8"})));
+
+        GroupMembership alice = new GroupMembership();
+        alice.add("10.0.0.1");
+        alice.add("10.0.0.3");
+        alice.add("10.0.1.1-10.0.1.10");
+        GroupMembership bob = new GroupMembership();
+        bob.add("10.0.0.7");
+
+        List<GroupOperation> ops = plan.reconcile(Map.of("101", alice, "102", bob), Logger.getAnonymousLogger()).getOperations();
+
+        // bob's only addition is already a member; carol's group ID is unresolved, so her operation is kept
+        assertEquals(4, ops.size());
+        // 10.0.0.2 is not a member; 10.0.0.3 is added again, so it stays
+        assertEquals("remove", ops.get(0).getAction());
+        assertArrayEquals(new String[]{"10.0.0.1"}, ops.get(0).getIps());
+        // 10.0.0.3 is already a member, 10.0.1.5 is inside a listed range
+        assertArrayEquals(new String[]{"10.0.0.4"}, ops.get(1).getIps());
+        // 10.0.0.4 was already added by the owner operation of the same group
+        assertArrayEquals(new String[]{"10.0.0.6"}, ops.get(2).getIps());
+        assertEquals("contact", ops.get(2).getGroupType());
+        assertEquals("carol", ops.get(3).getGroupName());
+    }
+
+    @Test
+    void testReconcile_keepsGroupsWithoutMembership() {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 8, 0, 30);
+        GroupOperation unresolved = new GroupOperation("owner", "carol", null, "add", new String[]{"10.0.0.8"});
+        GroupOperation unlisted = new GroupOperation("owner", "dave", "104", "remove", new String[]{"10.0.0.9"});
+        SyncPlan plan = new SyncPlan(start, List.of(unresolved, unlisted));
+
+        List<GroupOperation> ops = plan.reconcile(Map.of(), Logger.getAnonymousLogger()).getOperations();
+
+        assertEquals(List.of(unresolved, unlisted), ops);
+        assertEquals(start, plan.reconcile(Map.of(), Logger.getAnonymousLogger()).getAppStartTimestamp());
+    }
+}
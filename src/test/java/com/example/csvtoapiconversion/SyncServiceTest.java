@@ -0,0 +1,100 @@
+package com.example.csvtoapiconversion;
+
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.*;
+import java.net.http.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncServiceTest {
+
+    private SyncService service;
+    private HttpClient client;
+
+    @BeforeEach
+    void setup() throws IOException {
+        service = new SyncService(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, List.of());
+        service.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void cleanup() {
+        service.stop();
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create("http://127.0.0.1:" + service.getPort() + pathAndQuery);
+    }
+
+    @Test
+    void testHealth() throws Exception {
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(uri("/health")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("OK\n", response.body());
+    }
+
+    @Test
+    void testUploadedCsvDryRunStreamsProgress() throws Exception {
+        String csv = "Asset,Contact,Owner,1.1.1.1,05/01/2025 08:00:00 AM,\n";
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(uri("/jobs?suppressApiCall=true&start=01/01/2020%2012:00:00%20AM"))
+                .POST(HttpRequest.BodyPublishers.ofString(csv)).build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("[QUEUED] "));
+        assertTrue(response.body().contains("[DRY RUN] Would add IPs [1.1.1.1] to owner group: Owner"));
+        assertTrue(response.body().contains("Completed: 2 operations, 0 failed"));
+    }
+
+    @Test
+    void testConcurrentJobsWriteTheirOwnRejects() throws Exception {
+        Path dir = Files.createTempDirectory("test-service");
+        SyncService concurrent = new SyncService(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2,
+            List.of("--rejects-file=" + dir.resolve("run.rejects")));
+        concurrent.start();
+        try {
+            List<CompletableFuture<HttpResponse<String>>> jobs = new ArrayList<>();
+            for (String asset : List.of("AssetA", "AssetB")) {
+                String csv = asset + ",Contact,Owner,1.1.1.1,not-an-ip,05/01/2025 08:00:00 AM,\n";
+                jobs.add(client.sendAsync(
+                    HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + concurrent.getPort()
+                            + "/jobs?suppressApiCall=true&start=01/01/2020%2012:00:00%20AM"))
+                        .POST(HttpRequest.BodyPublishers.ofString(csv)).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> job : jobs) {
+                assertTrue(job.get(30, TimeUnit.SECONDS).body().contains("Completed: 2 operations, 0 failed"));
+            }
+
+            Set<String> assets = new TreeSet<>();
+            for (String job : List.of("1", "2")) {
+                List<String> report = Files.readAllLines(SyncService.jobFile(dir.resolve("run.rejects"), job));
+                assertEquals(2, report.size());
+                assets.add(report.get(1).split("\t")[1]);
+            }
+            assertEquals(Set.of("AssetA", "AssetB"), assets);
+            assertFalse(Files.exists(dir.resolve("run.rejects")));
+        } finally {
+            concurrent.stop();
+            try (var files = Files.list(dir)) {
+                for (Path file : files.toList()) Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void testJobsRejectsGet() throws Exception {
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(uri("/jobs")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, response.statusCode());
+    }
+}